@@ -1,5 +1,6 @@
 package com.example.ecommerce.config.cache;
 
+import com.example.ecommerce.service.product.ProductCacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
@@ -7,6 +8,7 @@ import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
@@ -14,11 +16,16 @@ import java.util.concurrent.TimeUnit;
 public class CacheConfig {
 
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("product-by-id", "product-list");
+    public CacheManager cacheManager(ProductCacheLoader productCacheLoader) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Entries read between 5 and 10 minutes old are reloaded in the background;
+        // idle entries still expire at 10 minutes.
         cacheManager.setCaffeine(Caffeine.newBuilder()
                 .maximumSize(500)
+                .refreshAfterWrite(5, TimeUnit.MINUTES)
                 .expireAfterWrite(10, TimeUnit.MINUTES));
+        cacheManager.setCacheLoader(productCacheLoader);
+        cacheManager.setCacheNames(List.of("product-by-id", "product-list", "product-summary-list", "product-facets"));
         return cacheManager;
     }
 }
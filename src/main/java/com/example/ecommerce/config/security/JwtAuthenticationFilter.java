@@ -1,30 +1,48 @@
 package com.example.ecommerce.config.security;
 
 import com.example.ecommerce.service.auth.JwtService;
+import com.example.ecommerce.service.auth.TokenVersionService;
+import com.example.ecommerce.service.auth.UserPrincipal;
 import com.example.ecommerce.service.auth.UserPrincipalService;
+import com.example.ecommerce.service.auth.VerifiedToken;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/**
+ * Authenticates bearer tokens. In stateless mode (the default) the principal is
+ * rebuilt from the verified claims, and the only extra check is the cached
+ * token version. Tokens without a user id claim, or stateless mode turned off,
+ * fall back to loading the user from Mongo.
+ */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserPrincipalService userPrincipalService;
+    private final TokenVersionService tokenVersionService;
+    private final boolean stateless;
 
-    public JwtAuthenticationFilter(JwtService jwtService, UserPrincipalService userPrincipalService) {
+    public JwtAuthenticationFilter(JwtService jwtService,
+                                   UserPrincipalService userPrincipalService,
+                                   TokenVersionService tokenVersionService,
+                                   @Value("${security.jwt.stateless:true}") boolean stateless) {
         this.jwtService = jwtService;
         this.userPrincipalService = userPrincipalService;
+        this.tokenVersionService = tokenVersionService;
+        this.stateless = stateless;
     }
 
     @Override
@@ -37,15 +55,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         String token = authHeader.substring(7);
-        String username = jwtService.extractUsername(token);
-
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userPrincipalService.loadUserByUsername(username);
-            if (jwtService.isTokenValid(token, userDetails)) {
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserPrincipal principal = authenticate(token);
+            if (principal != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
+                        principal,
                         null,
-                        userDetails.getAuthorities()
+                        principal.getAuthorities()
                 );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -53,5 +69,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
-}
 
+    /**
+     * Returns the principal for a valid, unrevoked token, or null so the request stays anonymous.
+     */
+    private UserPrincipal authenticate(String token) {
+        VerifiedToken verified;
+        try {
+            verified = jwtService.verify(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null; // bad signature, malformed or expired
+        }
+        UserPrincipal principal = stateless ? verified.toPrincipal() : null;
+        if (principal == null) {
+            try {
+                principal = userPrincipalService.loadUserByUsername(verified.subject());
+            } catch (UsernameNotFoundException e) {
+                return null;
+            }
+            return verified.tokenVersion() == principal.getTokenVersion() ? principal : null;
+        }
+        return tokenVersionService.isCurrent(principal.getId(), principal.getTokenVersion()) ? principal : null;
+    }
+}
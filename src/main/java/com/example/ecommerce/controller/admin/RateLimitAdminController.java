@@ -0,0 +1,33 @@
+package com.example.ecommerce.controller.admin;
+
+import com.example.ecommerce.util.ratelimit.RateLimitPolicy;
+import com.example.ecommerce.util.ratelimit.RateLimitPolicyRegistry;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/rate-limits")
+@PreAuthorize("hasRole('ADMIN')")
+public class RateLimitAdminController {
+
+    private final RateLimitPolicyRegistry policyRegistry;
+
+    public RateLimitAdminController(RateLimitPolicyRegistry policyRegistry) {
+        this.policyRegistry = policyRegistry;
+    }
+
+    @GetMapping
+    public List<RateLimitPolicy> policies() {
+        return policyRegistry.policies();
+    }
+
+    @PostMapping("/reload")
+    public List<RateLimitPolicy> reload() {
+        return policyRegistry.reload();
+    }
+}
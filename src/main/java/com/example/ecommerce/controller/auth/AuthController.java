@@ -3,8 +3,12 @@ package com.example.ecommerce.controller.auth;
 import com.example.ecommerce.dto.request.auth.LoginRequest;
 import com.example.ecommerce.dto.request.auth.RegisterRequest;
 import com.example.ecommerce.dto.response.auth.AuthResponse;
+import com.example.ecommerce.exception.custom.UnauthorizedException;
 import com.example.ecommerce.service.auth.AuthService;
+import com.example.ecommerce.service.auth.UserPrincipal;
 import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -29,5 +33,17 @@ public class AuthController {
     public AuthResponse login(@Valid @RequestBody LoginRequest request) {
         return authService.login(request);
     }
+
+    /**
+     * Revokes every token issued to the caller, on all devices.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@AuthenticationPrincipal UserPrincipal user) {
+        if (user == null) {
+            throw new UnauthorizedException("Not authenticated");
+        }
+        authService.logoutEverywhere(user.getId());
+        return ResponseEntity.noContent().build();
+    }
 }
 
@@ -3,10 +3,10 @@ package com.example.ecommerce.controller.cart;
 import com.example.ecommerce.dto.request.cart.AddCartItemRequest;
 import com.example.ecommerce.dto.response.cart.CartResponse;
 import com.example.ecommerce.service.cart.CartService;
+import com.example.ecommerce.service.auth.UserPrincipal;
 import jakarta.validation.Valid;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -21,26 +21,26 @@ public class CartController {
     }
 
     @PostMapping("/items")
-    public CartResponse addItem(@AuthenticationPrincipal UserDetails user,
+    public CartResponse addItem(@AuthenticationPrincipal UserPrincipal user,
             @Valid @RequestBody AddCartItemRequest request) {
-        return cartService.addItem(user.getUsername(), request);
+        return cartService.addItem(user.getId(), request);
     }
 
     @PutMapping("/items/{productId}")
-    public CartResponse updateQuantity(@AuthenticationPrincipal UserDetails user,
+    public CartResponse updateQuantity(@AuthenticationPrincipal UserPrincipal user,
             @PathVariable String productId,
             @RequestParam int quantity) {
-        return cartService.updateQuantity(user.getUsername(), productId, quantity);
+        return cartService.updateQuantity(user.getId(), productId, quantity);
     }
 
     @DeleteMapping("/items/{productId}")
-    public CartResponse removeItem(@AuthenticationPrincipal UserDetails user,
+    public CartResponse removeItem(@AuthenticationPrincipal UserPrincipal user,
             @PathVariable String productId) {
-        return cartService.removeItem(user.getUsername(), productId);
+        return cartService.removeItem(user.getId(), productId);
     }
 
     @GetMapping
-    public CartResponse getCart(@AuthenticationPrincipal UserDetails user) {
-        return cartService.getCart(user.getUsername());
+    public CartResponse getCart(@AuthenticationPrincipal UserPrincipal user) {
+        return cartService.getCart(user.getId());
     }
 }
@@ -0,0 +1,47 @@
+package com.example.ecommerce.controller.media;
+
+import com.example.ecommerce.exception.custom.ResourceNotFoundException;
+import com.example.ecommerce.util.storage.FileStorageService;
+import com.example.ecommerce.util.storage.ImageDerivatives;
+import com.example.ecommerce.util.storage.ZeroCopyFileSender;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@RestController
+@RequestMapping("/api/media")
+public class MediaController {
+
+    private static final String PREFIX = "/api/media/";
+
+    private final FileStorageService fileStorageService;
+    private final ZeroCopyFileSender fileSender;
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public MediaController(FileStorageService fileStorageService, ZeroCopyFileSender fileSender) {
+        this.fileStorageService = fileStorageService;
+        this.fileSender = fileSender;
+    }
+
+    @GetMapping("/**")
+    public void get(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = urlPathHelper.getPathWithinApplication(request);
+        String key = path.startsWith(PREFIX) ? path.substring(PREFIX.length()) : "";
+        Path file = key.isEmpty() ? null : fileStorageService.resolve(key);
+        boolean immutable = file != null && fileStorageService.isImmutable(key);
+        if (file == null && ImageDerivatives.originalKeyOf(key) != null) {
+            // variant not generated yet: serve the original without long-lived caching
+            file = fileStorageService.resolve(ImageDerivatives.originalKeyOf(key));
+        }
+        if (file == null) {
+            throw new ResourceNotFoundException("File not found");
+        }
+        fileSender.send(request, response, file, immutable);
+    }
+}
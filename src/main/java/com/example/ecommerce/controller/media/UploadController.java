@@ -0,0 +1,59 @@
+package com.example.ecommerce.controller.media;
+
+import com.example.ecommerce.dto.request.media.UploadInitRequest;
+import com.example.ecommerce.dto.response.media.UploadSessionResponse;
+import com.example.ecommerce.service.media.ChunkedUploadService;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/uploads")
+@PreAuthorize("hasRole('ADMIN')")
+public class UploadController {
+
+    public static final String CHUNK_CHECKSUM_HEADER = "X-Chunk-Sha256";
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    public UploadController(ChunkedUploadService chunkedUploadService) {
+        this.chunkedUploadService = chunkedUploadService;
+    }
+
+    @PostMapping
+    public UploadSessionResponse initiate(@AuthenticationPrincipal UserDetails user,
+            @Valid @RequestBody UploadInitRequest request) throws IOException {
+        return chunkedUploadService.initiate(user.getUsername(), request);
+    }
+
+    @GetMapping("/{id}")
+    public UploadSessionResponse status(@AuthenticationPrincipal UserDetails user, @PathVariable String id) {
+        return chunkedUploadService.status(user.getUsername(), id);
+    }
+
+    @PutMapping(value = "/{id}/chunks", consumes = "application/octet-stream")
+    public UploadSessionResponse writeChunk(@AuthenticationPrincipal UserDetails user,
+            @PathVariable String id,
+            @RequestParam long offset,
+            @RequestHeader(CHUNK_CHECKSUM_HEADER) String sha256,
+            InputStream body) throws IOException {
+        return chunkedUploadService.writeChunk(user.getUsername(), id, offset, sha256, body);
+    }
+
+    @PostMapping("/{id}/complete")
+    public UploadSessionResponse complete(@AuthenticationPrincipal UserDetails user, @PathVariable String id) throws IOException {
+        return chunkedUploadService.complete(user.getUsername(), id);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abort(@AuthenticationPrincipal UserDetails user, @PathVariable String id) throws IOException {
+        chunkedUploadService.abort(user.getUsername(), id);
+        return ResponseEntity.noContent().build();
+    }
+}
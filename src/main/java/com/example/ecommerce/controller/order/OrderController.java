@@ -3,10 +3,10 @@ package com.example.ecommerce.controller.order;
 import com.example.ecommerce.dto.request.order.PlaceOrderRequest;
 import com.example.ecommerce.dto.response.order.OrderResponse;
 import com.example.ecommerce.service.order.OrderService;
+import com.example.ecommerce.service.auth.UserPrincipal;
 import jakarta.validation.Valid;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -23,14 +23,14 @@ public class OrderController {
     }
 
     @PostMapping
-    public OrderResponse placeOrder(@AuthenticationPrincipal UserDetails user,
+    public OrderResponse placeOrder(@AuthenticationPrincipal UserPrincipal user,
             @Valid @RequestBody PlaceOrderRequest request) {
-        return orderService.placeOrder(user.getUsername(), request);
+        return orderService.placeOrder(user, request);
     }
 
     @GetMapping
-    public List<OrderResponse> myOrders(@AuthenticationPrincipal UserDetails user) {
-        return orderService.userOrders(user.getUsername());
+    public List<OrderResponse> myOrders(@AuthenticationPrincipal UserPrincipal user) {
+        return orderService.userOrders(user.getId());
     }
 
     @GetMapping("/{id}")
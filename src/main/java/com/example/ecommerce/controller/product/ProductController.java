@@ -1,22 +1,45 @@
 package com.example.ecommerce.controller.product;
 
 import com.example.ecommerce.dto.request.product.ProductRequest;
+import com.example.ecommerce.dto.response.product.ProductFacetsResponse;
+import com.example.ecommerce.dto.response.product.ProductImportResponse;
 import com.example.ecommerce.dto.response.product.ProductResponse;
+import com.example.ecommerce.dto.response.product.ProductSliceResponse;
+import com.example.ecommerce.exception.custom.BadRequestException;
+import com.example.ecommerce.service.product.ProductExportService;
+import com.example.ecommerce.service.product.ProductImportService;
+import com.example.ecommerce.service.product.ProductSearchIndex;
 import com.example.ecommerce.service.product.ProductService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService,
+                             ProductImportService productImportService,
+                             ProductExportService productExportService) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.productExportService = productExportService;
     }
 
     @PostMapping
@@ -31,6 +54,31 @@ public class ProductController {
         return productService.update(id, request);
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ProductImportResponse importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                @RequestParam(defaultValue = "1000") int batchSize,
+                                                InputStream body) throws IOException {
+        String format = contentType.startsWith("text/csv") ? "csv" : "ndjson";
+        return productImportService.importProducts(body, format, batchSize);
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "ndjson") String format,
+                                                                @RequestParam(required = false)
+                                                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant updatedSince) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            throw new BadRequestException("Unsupported export format: " + format);
+        }
+        StreamingResponseBody body = out -> productExportService.export(format, updatedSince, out);
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=products." + (csv ? "csv" : "ndjson"))
+                .body(body);
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public void delete(@PathVariable String id) {
@@ -38,19 +86,67 @@ public class ProductController {
     }
 
     @GetMapping("/{id}")
-    public ProductResponse getById(@PathVariable String id) {
-        return productService.getById(id);
+    public ResponseEntity<ProductResponse> getById(@PathVariable String id,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ProductResponse product = productService.getById(id);
+        return ProductETags.conditional(ifNoneMatch, ProductETags.of(product), product);
     }
 
     @GetMapping
-    public List<ProductResponse> list(@RequestParam(defaultValue = "0") int page,
-                                      @RequestParam(defaultValue = "20") int size,
-                                      @RequestParam(defaultValue = "createdAt,desc") String sort,
-                                      @RequestParam(required = false) String category,
-                                      @RequestParam(required = false) Double minPrice,
-                                      @RequestParam(required = false) Double maxPrice,
-                                      @RequestParam(required = false) Boolean available) {
-        return productService.list(page, size, sort, category, minPrice, maxPrice, available);
+    public ResponseEntity<List<?>> list(@RequestParam(defaultValue = "0") int page,
+                                        @RequestParam(defaultValue = "20") int size,
+                                        @RequestParam(defaultValue = "createdAt,desc") String sort,
+                                        @RequestParam(required = false) String category,
+                                        @RequestParam(required = false) Double minPrice,
+                                        @RequestParam(required = false) Double maxPrice,
+                                        @RequestParam(required = false) Boolean available,
+                                        @RequestParam(defaultValue = "full") String view,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        checkPaging(page, size);
+        boolean summary = "summary".equalsIgnoreCase(view);
+        List<?> items = summary
+                ? productService.listSummaries(page, size, sort, category, minPrice, maxPrice, available)
+                : productService.list(page, size, sort, category, minPrice, maxPrice, available);
+        return ProductETags.conditional(ifNoneMatch, ProductETags.of(summary ? "summary" : "full", items), items);
     }
-}
 
+    @GetMapping("/facets")
+    public ProductFacetsResponse facets(@RequestParam(required = false) String category,
+                                        @RequestParam(required = false) Double minPrice,
+                                        @RequestParam(required = false) Double maxPrice,
+                                        @RequestParam(required = false) Boolean available) {
+        return productService.facets(category, minPrice, maxPrice, available);
+    }
+
+    @GetMapping("/scroll")
+    public ProductSliceResponse scroll(@RequestParam(required = false) String cursor,
+                                       @RequestParam(defaultValue = "20") int size,
+                                       @RequestParam(defaultValue = "createdAt,desc") String sort,
+                                       @RequestParam(required = false) String category,
+                                       @RequestParam(required = false) Double minPrice,
+                                       @RequestParam(required = false) Double maxPrice,
+                                       @RequestParam(required = false) Boolean available) {
+        checkPaging(0, size);
+        return productService.scroll(cursor, size, sort, category, minPrice, maxPrice, available);
+    }
+
+    @GetMapping("/search")
+    public List<ProductResponse> search(@RequestParam String q,
+                                        @RequestParam(defaultValue = "0") int page,
+                                        @RequestParam(defaultValue = "20") int size) {
+        checkPaging(page, size);
+        if ((long) page * size >= ProductSearchIndex.MAX_RESULTS) {
+            throw new BadRequestException("Search results are limited to the first " + ProductSearchIndex.MAX_RESULTS + " hits");
+        }
+        return productService.search(q, page, size);
+    }
+
+    private static void checkPaging(int page, int size) {
+        if (page < 0) {
+            throw new BadRequestException("page must not be negative");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+}
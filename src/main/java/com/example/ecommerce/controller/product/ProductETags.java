@@ -0,0 +1,73 @@
+package com.example.ecommerce.controller.product;
+
+import com.example.ecommerce.dto.response.product.ProductResponse;
+import com.example.ecommerce.dto.response.product.ProductSummaryResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Strong ETags derived from product ids and revisions, so conditional GETs can
+ * be answered from the cached DTOs without serializing the body.
+ */
+final class ProductETags {
+
+    private ProductETags() {
+    }
+
+    static String of(ProductResponse product) {
+        return "\"" + product.getId() + "-" + product.getVersion() + "\"";
+    }
+
+    /**
+     * The view is part of the digest, so the summary and full representations of a page never share an ETag.
+     */
+    static String of(String view, List<?> items) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((view + "|").getBytes(StandardCharsets.UTF_8));
+            for (Object item : items) {
+                if (item instanceof ProductResponse p) {
+                    update(digest, p.getId(), p.getVersion());
+                } else if (item instanceof ProductSummaryResponse p) {
+                    update(digest, p.getId(), p.getVersion());
+                }
+            }
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 304 without a body when If-None-Match carries the current ETag (or "*"), else 200 with the body.
+     */
+    static <T> ResponseEntity<T> conditional(String ifNoneMatch, String etag, T body) {
+        if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(body);
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void update(MessageDigest digest, String id, long version) {
+        digest.update((id + ":" + version + ";").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -2,7 +2,9 @@ package com.example.ecommerce.dto.mapper;
 
 import com.example.ecommerce.dto.request.product.ProductRequest;
 import com.example.ecommerce.dto.response.product.ProductResponse;
+import com.example.ecommerce.dto.response.product.ProductSummaryResponse;
 import com.example.ecommerce.model.Product;
+import com.example.ecommerce.util.storage.ImageDerivatives;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -16,20 +18,10 @@ public class ProductMapper {
         product.setStock(request.getStock());
         product.setCategory(request.getCategory());
         product.setImageUrl(imageUrl);
+        product.setVersion(1);
         return product;
     }
 
-    public void updateEntity(Product product, ProductRequest request, String imageUrl) {
-        product.setName(request.getName());
-        product.setDescription(request.getDescription());
-        product.setPrice(request.getPrice());
-        product.setStock(request.getStock());
-        product.setCategory(request.getCategory());
-        if (imageUrl != null) {
-            product.setImageUrl(imageUrl);
-        }
-    }
-
     public ProductResponse toResponse(Product product) {
         ProductResponse response = new ProductResponse();
         response.setId(product.getId());
@@ -39,7 +31,21 @@ public class ProductMapper {
         response.setStock(product.getStock());
         response.setCategory(product.getCategory());
         response.setImageUrl(product.getImageUrl());
+        response.setThumbnailUrl(ImageDerivatives.urlFor(product.getImageUrl(), ImageDerivatives.THUMB));
+        response.setMediumImageUrl(ImageDerivatives.urlFor(product.getImageUrl(), ImageDerivatives.MEDIUM));
+        response.setVersion(product.getVersion());
         return response;
     }
-}
 
+    public ProductSummaryResponse toSummaryResponse(Product product) {
+        ProductSummaryResponse response = new ProductSummaryResponse();
+        response.setId(product.getId());
+        response.setName(product.getName());
+        response.setPrice(product.getPrice());
+        response.setStock(product.getStock());
+        response.setImageUrl(product.getImageUrl());
+        response.setThumbnailUrl(ImageDerivatives.urlFor(product.getImageUrl(), ImageDerivatives.THUMB));
+        response.setVersion(product.getVersion());
+        return response;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.ecommerce.dto.request.media;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+public class UploadInitRequest {
+    @NotBlank
+    private String filename;
+    @Min(1)
+    private long size;
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+}
@@ -18,6 +18,7 @@ public class ProductRequest {
     private Integer stock;
     private String category;
     private MultipartFile image; // optional upload
+    private String imageUploadId; // optional completed chunked upload, instead of image
 
     public String getName() {
         return name;
@@ -66,5 +67,12 @@ public class ProductRequest {
     public void setImage(MultipartFile image) {
         this.image = image;
     }
-}
 
+    public String getImageUploadId() {
+        return imageUploadId;
+    }
+
+    public void setImageUploadId(String imageUploadId) {
+        this.imageUploadId = imageUploadId;
+    }
+}
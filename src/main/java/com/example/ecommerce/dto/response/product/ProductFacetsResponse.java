@@ -0,0 +1,33 @@
+package com.example.ecommerce.dto.response.product;
+
+import java.util.Map;
+
+public class ProductFacetsResponse {
+    private Map<String, Long> categories;   // category -> product count
+    private Map<String, Long> availability; // inStock / outOfStock -> product count
+    private Map<String, Long> priceBuckets; // "lower-upper" (or "lower+") -> product count
+
+    public Map<String, Long> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(Map<String, Long> categories) {
+        this.categories = categories;
+    }
+
+    public Map<String, Long> getAvailability() {
+        return availability;
+    }
+
+    public void setAvailability(Map<String, Long> availability) {
+        this.availability = availability;
+    }
+
+    public Map<String, Long> getPriceBuckets() {
+        return priceBuckets;
+    }
+
+    public void setPriceBuckets(Map<String, Long> priceBuckets) {
+        this.priceBuckets = priceBuckets;
+    }
+}
@@ -8,6 +8,9 @@ public class ProductResponse {
     private int stock;
     private String category;
     private String imageUrl;
+    private String thumbnailUrl;
+    private String mediumImageUrl;
+    private long version;
 
     public String getId() {
         return id;
@@ -64,5 +67,28 @@ public class ProductResponse {
     public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
     }
-}
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public String getMediumImageUrl() {
+        return mediumImageUrl;
+    }
+
+    public void setMediumImageUrl(String mediumImageUrl) {
+        this.mediumImageUrl = mediumImageUrl;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.ecommerce.dto.response.product;
+
+import java.util.List;
+
+public class ProductSliceResponse {
+    private List<ProductResponse> items;
+    private String nextCursor; // null when there are no more results
+    private boolean hasNext;
+
+    public List<ProductResponse> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ProductResponse> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
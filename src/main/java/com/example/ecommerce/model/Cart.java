@@ -13,6 +13,7 @@ public class Cart {
     @Id
     private String id;
     @NotBlank
+    // unique index created by CartService once legacy and duplicate carts are merged
     private String userId;
     private List<CartItem> items = new ArrayList<>();
 
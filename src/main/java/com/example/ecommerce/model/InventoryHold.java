@@ -0,0 +1,68 @@
+package com.example.ecommerce.model;
+
+import com.example.ecommerce.model.enums.HoldStatus;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stock set aside for an unpaid order. The quantities were already deducted
+ * from the products; payment confirms the hold, and expiry gives the stock back.
+ */
+@Document(collection = "inventory_holds")
+@CompoundIndex(name = "status_expiresAt", def = "{'status': 1, 'expiresAt': 1}")
+public class InventoryHold {
+    @Id
+    private String id; // the order id
+    private Map<String, Integer> quantities = new HashMap<>(); // product id -> quantity
+    private HoldStatus status;
+    private Instant expiresAt;
+    private Instant createdAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Map<String, Integer> getQuantities() {
+        if (quantities == null) {
+            quantities = new HashMap<>();
+        }
+        return quantities;
+    }
+
+    public void setQuantities(Map<String, Integer> quantities) {
+        this.quantities = quantities;
+    }
+
+    public HoldStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(HoldStatus status) {
+        this.status = status;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -1,12 +1,15 @@
 package com.example.ecommerce.model;
 
 import com.example.ecommerce.model.embedded.OrderItem;
+import com.example.ecommerce.model.embedded.OutboxEvent;
 import com.example.ecommerce.model.enums.OrderStatus;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 @Document(collection = "orders")
@@ -20,11 +23,19 @@ public class Order {
     private String paymentId;
     @CreatedDate
     private Instant createdAt;
+    private List<OutboxEvent> outbox = new ArrayList<>(); // side effects not yet carried out
+    @Indexed(sparse = true)
+    private Instant outboxDueAt; // when the dispatcher should next look at this order, lease expiry while claimed
+    private String outboxClaim;
 
     public String getId() {
         return id;
     }
 
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getUserId() {
         return userId;
     }
@@ -72,5 +83,31 @@ public class Order {
     public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
-}
 
+    public List<OutboxEvent> getOutbox() {
+        if (outbox == null) {
+            outbox = new ArrayList<>();
+        }
+        return outbox;
+    }
+
+    public void setOutbox(List<OutboxEvent> outbox) {
+        this.outbox = outbox;
+    }
+
+    public Instant getOutboxDueAt() {
+        return outboxDueAt;
+    }
+
+    public void setOutboxDueAt(Instant outboxDueAt) {
+        this.outboxDueAt = outboxDueAt;
+    }
+
+    public String getOutboxClaim() {
+        return outboxClaim;
+    }
+
+    public void setOutboxClaim(String outboxClaim) {
+        this.outboxClaim = outboxClaim;
+    }
+}
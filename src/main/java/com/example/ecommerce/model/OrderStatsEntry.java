@@ -0,0 +1,53 @@
+package com.example.ecommerce.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * One row per placed order, keyed by the order id, so recording the same order twice is a no-op.
+ * Daily totals are summed from these rows.
+ */
+@Document(collection = "order_stats")
+public class OrderStatsEntry {
+    @Id
+    private String id; // the order id
+    @Indexed
+    private String day; // UTC date, yyyy-MM-dd
+    private double revenue;
+    private Instant placedAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getDay() {
+        return day;
+    }
+
+    public void setDay(String day) {
+        this.day = day;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(double revenue) {
+        this.revenue = revenue;
+    }
+
+    public Instant getPlacedAt() {
+        return placedAt;
+    }
+
+    public void setPlacedAt(Instant placedAt) {
+        this.placedAt = placedAt;
+    }
+}
@@ -4,12 +4,26 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
 
 @Document(collection = "products")
+// One index per supported sort, with category first for equality/prefix filters; see ProductQueryBuilder.
+@CompoundIndexes({
+        @CompoundIndex(name = "category_createdAt", def = "{'category': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "category_price", def = "{'category': 1, 'price': 1, '_id': 1}"),
+        @CompoundIndex(name = "category_stock", def = "{'category': 1, 'stock': 1, '_id': 1}"),
+        @CompoundIndex(name = "category_name", def = "{'category': 1, 'name': 1, '_id': 1}"),
+        @CompoundIndex(name = "createdAt", def = "{'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "price", def = "{'price': 1, '_id': 1}"),
+        @CompoundIndex(name = "stock", def = "{'stock': 1, '_id': 1}"),
+        @CompoundIndex(name = "name", def = "{'name': 1, '_id': 1}"),
+        @CompoundIndex(name = "updatedAt", def = "{'updatedAt': 1, '_id': 1}")
+})
 public class Product {
 
     @Id
@@ -27,7 +41,6 @@ public class Product {
     @Min(0)
     private int stock;
 
-    @Indexed
     private String category;
 
     private String imageUrl;
@@ -35,6 +48,14 @@ public class Product {
     @CreatedDate
     private Instant createdAt;
 
+    // Set by auditing on repository saves; template/bulk updates set it explicitly.
+    @LastModifiedDate
+    private Instant updatedAt;
+
+    // Bumped on every write; drives product ETags. Not @Version, since documents
+    // written before this field existed would then be treated as new on save.
+    private long version;
+
     public String getId() {
         return id;
     }
@@ -94,5 +115,20 @@ public class Product {
     public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
-}
 
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
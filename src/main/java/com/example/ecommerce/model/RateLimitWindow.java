@@ -0,0 +1,50 @@
+package com.example.ecommerce.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Document(collection = "rate_limit_windows")
+public class RateLimitWindow {
+    @Id
+    private String id; // policy|client key|window start millis
+    private long count; // requests granted by all nodes in this window
+    private List<String> nodes = new ArrayList<>(); // instances that granted requests in this window
+    @Indexed(expireAfterSeconds = 0)
+    private Instant expiresAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public List<String> getNodes() {
+        if (nodes == null) {
+            nodes = new ArrayList<>();
+        }
+        return nodes;
+    }
+
+    public void setNodes(List<String> nodes) {
+        this.nodes = nodes;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -25,6 +25,8 @@ public class User {
 
     private Set<Role> roles;
 
+    private long tokenVersion; // bumped to revoke every token issued so far
+
     // getters and setters
     public String getId() {
         return id;
@@ -61,5 +63,12 @@ public class User {
     public void setRoles(Set<Role> roles) {
         this.roles = roles;
     }
-}
 
+    public long getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(long tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.ecommerce.model.enums;
+
+public enum HoldStatus {
+    HELD,
+    CONFIRMED,
+    RELEASING,
+    RELEASED
+}
@@ -5,6 +5,7 @@ public enum OrderStatus {
     PAID,
     SHIPPED,
     DELIVERED,
-    CANCELLED
+    CANCELLED,
+    REFUND_REQUIRED // paid after the hold expired and the stock was sold meanwhile
 }
 
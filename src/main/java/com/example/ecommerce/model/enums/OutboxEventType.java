@@ -0,0 +1,7 @@
+package com.example.ecommerce.model.enums;
+
+public enum OutboxEventType {
+    PAYMENT_INTENT,
+    ORDER_EMAIL,
+    ORDER_ANALYTICS
+}
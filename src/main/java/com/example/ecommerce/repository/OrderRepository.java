@@ -3,6 +3,8 @@ package com.example.ecommerce.repository;
 import com.example.ecommerce.model.Order;
 import com.example.ecommerce.model.enums.OrderStatus;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 
 import java.time.Instant;
 import java.util.List;
@@ -11,5 +13,14 @@ public interface OrderRepository extends MongoRepository<Order, String> {
     List<Order> findByUserId(String userId);
     long countByStatus(OrderStatus status);
     long countByCreatedAtBetween(Instant start, Instant end);
+
+    // targeted updates, so a status change never rewrites the outbox the dispatcher is draining
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$set': { 'status': ?1 } }")
+    long updateStatus(String id, OrderStatus status);
+
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$set': { 'status': ?1, 'paymentId': ?2 } }")
+    long updateStatusAndPaymentId(String id, OrderStatus status, String paymentId);
 }
 
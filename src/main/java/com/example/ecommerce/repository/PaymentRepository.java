@@ -8,4 +8,5 @@ import java.util.Optional;
 public interface PaymentRepository extends MongoRepository<Payment, String> {
     Optional<Payment> findByProviderOrderId(String providerOrderId);
     Optional<Payment> findByProviderPaymentId(String providerPaymentId);
+    Optional<Payment> findFirstByOrderId(String orderId);
 }
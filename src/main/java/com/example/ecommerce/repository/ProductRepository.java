@@ -1,11 +1,7 @@
 package com.example.ecommerce.repository;
 
 import com.example.ecommerce.model.Product;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 public interface ProductRepository extends MongoRepository<Product, String> {
-    Page<Product> findByCategoryContainingIgnoreCaseAndPriceBetween(String category, double minPrice, double maxPrice, Pageable pageable);
 }
-
@@ -0,0 +1,7 @@
+package com.example.ecommerce.repository;
+
+import com.example.ecommerce.model.UploadSession;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface UploadSessionRepository extends MongoRepository<UploadSession, String> {
+}
@@ -1,12 +1,23 @@
 package com.example.ecommerce.service.analytics;
 
+import com.example.ecommerce.model.Order;
+import com.example.ecommerce.model.OrderStatsEntry;
 import com.example.ecommerce.repository.OrderRepository;
 import com.example.ecommerce.repository.ProductRepository;
 import com.example.ecommerce.repository.UserRepository;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -15,20 +26,57 @@ public class AnalyticsService {
     private final UserRepository userRepository;
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
+    private final MongoTemplate mongoTemplate;
 
     public AnalyticsService(UserRepository userRepository,
                             OrderRepository orderRepository,
-                            ProductRepository productRepository) {
+                            ProductRepository productRepository,
+                            MongoTemplate mongoTemplate) {
         this.userRepository = userRepository;
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Records a placed order in order_stats. The row is keyed by the order id and only written on
+     * insert, so a redelivered event is a no-op.
+     */
+    public void recordOrderPlaced(Order order) {
+        Instant placedAt = order.getCreatedAt() != null ? order.getCreatedAt() : Instant.now();
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(order.getId())),
+                new Update().setOnInsert("day", day(placedAt))
+                        .setOnInsert("revenue", order.getTotal())
+                        .setOnInsert("placedAt", placedAt),
+                OrderStatsEntry.class);
     }
 
     public Map<String, Object> summary() {
         long users = userRepository.count();
         long orders = orderRepository.count();
         double revenue = orderRepository.findAll().stream().mapToDouble(o -> o.getTotal()).sum();
-        return Map.of("totalUsers", users, "totalOrders", orders, "totalRevenue", revenue);
+        return Map.of("totalUsers", users, "totalOrders", orders, "totalRevenue", revenue, "last7Days", dailyTotals(7));
+    }
+
+    /**
+     * Orders and revenue per UTC day over the last days, oldest first, summed from order_stats.
+     */
+    private List<Map<String, Object>> dailyTotals(int days) {
+        String from = day(Instant.now().minus(days - 1, ChronoUnit.DAYS));
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("day").gte(from)),
+                Aggregation.group("day").count().as("orders").sum("revenue").as("revenue"),
+                Aggregation.sort(Sort.Direction.ASC, "_id"));
+        return mongoTemplate.aggregate(aggregation, OrderStatsEntry.class, Document.class).getMappedResults().stream()
+                .map(d -> Map.<String, Object>of(
+                        "day", d.getString("_id"),
+                        "orders", ((Number) d.get("orders")).longValue(),
+                        "revenue", ((Number) d.get("revenue")).doubleValue()))
+                .toList();
+    }
+
+    private static String day(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC).toLocalDate().toString();
     }
 
     public Map<String, Object> ordersPerDayLast7() {
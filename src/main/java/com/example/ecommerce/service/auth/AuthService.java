@@ -10,7 +10,6 @@ import com.example.ecommerce.repository.UserRepository;
 import com.example.ecommerce.service.app.EmailService;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -24,17 +23,20 @@ public class AuthService {
         private final AuthenticationManager authenticationManager;
         private final JwtService jwtService;
         private final EmailService emailService;
+        private final TokenVersionService tokenVersionService;
 
         public AuthService(UserRepository userRepository,
                         PasswordEncoder passwordEncoder,
                         AuthenticationManager authenticationManager,
                         JwtService jwtService,
-                        EmailService emailService) {
+                        EmailService emailService,
+                        TokenVersionService tokenVersionService) {
                 this.userRepository = userRepository;
                 this.passwordEncoder = passwordEncoder;
                 this.authenticationManager = authenticationManager;
                 this.jwtService = jwtService;
                 this.emailService = emailService;
+                this.tokenVersionService = tokenVersionService;
         }
 
         public AuthResponse register(RegisterRequest request) {
@@ -46,9 +48,9 @@ public class AuthService {
                 user.setEmail(request.getEmail());
                 user.setPassword(passwordEncoder.encode(request.getPassword()));
                 user.setRoles(Set.of(Role.ROLE_USER));
-                userRepository.save(user);
-                UserDetails principal = new org.springframework.security.core.userdetails.User(
-                                user.getEmail(), user.getPassword(),
+                user = userRepository.save(user);
+                UserPrincipal principal = new UserPrincipal(user.getId(), user.getName(),
+                                user.getEmail(), user.getPassword(), user.getTokenVersion(),
                                 user.getRoles().stream()
                                                 .map(r -> (org.springframework.security.core.GrantedAuthority) () -> r
                                                                 .name())
@@ -70,8 +72,8 @@ public class AuthService {
                                                 request.getPassword()));
                 User user = userRepository.findByEmail(request.getEmail())
                                 .orElseThrow(() -> new BadRequestException("Invalid credentials"));
-                UserDetails principal = new org.springframework.security.core.userdetails.User(
-                                user.getEmail(), user.getPassword(),
+                UserPrincipal principal = new UserPrincipal(user.getId(), user.getName(),
+                                user.getEmail(), user.getPassword(), user.getTokenVersion(),
                                 user.getRoles().stream()
                                                 .map(r -> (org.springframework.security.core.GrantedAuthority) () -> r
                                                                 .name())
@@ -80,4 +82,8 @@ public class AuthService {
                 return new AuthResponse(token,
                                 user.getRoles().stream().map(Enum::name).collect(java.util.stream.Collectors.toSet()));
         }
+
+        public void logoutEverywhere(String userId) {
+                tokenVersionService.revokeAll(userId);
+        }
 }
@@ -1,52 +1,114 @@
 package com.example.ecommerce.service.auth;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
 
 @Service
 public class JwtService {
 
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String NAME_CLAIM = "name";
+    public static final String ROLES_CLAIM = "roles";
+    public static final String TOKEN_VERSION_CLAIM = "tv";
+
     private final SecretKey secretKey;
     private final String issuer;
     private final long expirationMinutes;
+    private final JwtParser parser; // immutable and thread-safe, built once
+    private final Cache<String, VerifiedToken> verifiedTokens;
 
     public JwtService(
             @Value("${security.jwt.secret}") String secret,
             @Value("${security.jwt.issuer}") String issuer,
-            @Value("${security.jwt.expiration-minutes}") long expirationMinutes) {
+            @Value("${security.jwt.expiration-minutes}") long expirationMinutes,
+            @Value("${security.jwt.verified-cache-size:10000}") long verifiedCacheSize) {
         this.secretKey = Keys.hmacShaKeyFor(secret.getBytes());
         this.issuer = issuer;
         this.expirationMinutes = expirationMinutes;
+        this.parser = Jwts.parserBuilder().setSigningKey(secretKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new UntilTokenExpiry(Duration.ofMinutes(expirationMinutes)))
+                .build();
     }
 
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).subject();
+    }
+
+    public String extractUserId(String token) {
+        return verify(token).userId();
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    /**
+     * Checks the signature and expiry of a token once and returns its claims. Results are
+     * cached by SHA-256 of the token until the token expires, so later requests presenting
+     * the same token skip parsing and HMAC verification.
+     *
+     * @throws JwtException if the token is malformed, forged or expired
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null || token.isBlank()) {
+            throw new MalformedJwtException("Empty token");
+        }
+        String key = sha256(token);
+        VerifiedToken verified = verifiedTokens.getIfPresent(key);
+        if (verified == null) {
+            verified = parse(token);
+            verifiedTokens.put(key, verified);
+        }
+        if (verified.isExpired(Instant.now())) {
+            verifiedTokens.invalidate(key);
+            throw new ExpiredJwtException(null, null, "Token expired");
+        }
+        return verified;
     }
 
     public String generateToken(UserDetails userDetails) {
-        return buildToken(Map.of("roles", userDetails.getAuthorities()), userDetails.getUsername());
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(ROLES_CLAIM, userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        if (userDetails instanceof UserPrincipal principal) {
+            claims.put(USER_ID_CLAIM, principal.getId());
+            claims.put(NAME_CLAIM, principal.getName());
+            claims.put(TOKEN_VERSION_CLAIM, principal.getTokenVersion());
+        }
+        return buildToken(claims, userDetails.getUsername());
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+        try {
+            return verify(token).subject().equals(userDetails.getUsername());
+        } catch (JwtException e) {
+            return false;
+        }
     }
 
     private String buildToken(Map<String, Object> extraClaims, String subject) {
@@ -61,20 +123,64 @@ public class JwtService {
                 .compact();
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private VerifiedToken parse(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        List<String> roles = new ArrayList<>();
+        if (claims.get(ROLES_CLAIM) instanceof Collection<?> values) {
+            for (Object role : values) {
+                // older tokens serialized the authority objects themselves
+                Object name = role instanceof Map<?, ?> m ? m.get("authority") : role;
+                if (name != null) {
+                    roles.add(name.toString());
+                }
+            }
+        }
+        Number tokenVersion = claims.get(TOKEN_VERSION_CLAIM, Number.class);
+        Date expiration = claims.getExpiration();
+        return new VerifiedToken(claims.getSubject(),
+                claims.get(USER_ID_CLAIM, String.class),
+                claims.get(NAME_CLAIM, String.class),
+                tokenVersion != null ? tokenVersion.longValue() : 0,
+                roles,
+                expiration != null ? expiration.toInstant() : null);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Keeps each verified token until its own expiry, capped at the issuing lifetime for tokens without one.
+     */
+    private static final class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+        private final long maxNanos;
+
+        UntilTokenExpiry(Duration max) {
+            this.maxNanos = max.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            if (value.expiresAt() == null) {
+                return maxNanos;
+            }
+            long remaining = Duration.between(Instant.now(), value.expiresAt()).toNanos();
+            return Math.max(0, Math.min(remaining, maxNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
-
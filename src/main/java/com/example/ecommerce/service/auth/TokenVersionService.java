@@ -0,0 +1,59 @@
+package com.example.ecommerce.service.auth;
+
+import com.example.ecommerce.model.User;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Token revocation for stateless authentication. Each user has a tokenVersion
+ * that is copied into their tokens, and bumping it revokes every token issued
+ * before. Current versions are held in a small Caffeine cache that refreshes
+ * in the background, so a request costs a Mongo read only on a cold miss.
+ * Other nodes see a revocation within the refresh interval.
+ */
+@Service
+public class TokenVersionService {
+
+    private static final long UNKNOWN_USER = -1;
+
+    private final MongoTemplate mongoTemplate;
+    private final LoadingCache<String, Long> versions;
+
+    public TokenVersionService(MongoTemplate mongoTemplate,
+                               @Value("${security.jwt.revocation-refresh-seconds:30}") long refreshSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .refreshAfterWrite(Duration.ofSeconds(refreshSeconds))
+                .expireAfterWrite(Duration.ofSeconds(refreshSeconds * 10))
+                .build(this::load);
+    }
+
+    public boolean isCurrent(String userId, long tokenVersion) {
+        return versions.get(userId) == tokenVersion;
+    }
+
+    /**
+     * Invalidates every token issued to the user so far.
+     */
+    public void revokeAll(String userId) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(userId)),
+                new Update().inc("tokenVersion", 1), User.class);
+        versions.invalidate(userId);
+    }
+
+    private Long load(String userId) {
+        Query query = Query.query(Criteria.where("_id").is(userId));
+        query.fields().include("tokenVersion");
+        User user = mongoTemplate.findOne(query, User.class);
+        return user != null ? user.getTokenVersion() : UNKNOWN_USER;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.ecommerce.service.auth;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Authenticated user as seen by controllers: the Spring Security user (email as
+ * username) plus the user id and display name, so services can key carts and
+ * orders by id without another users lookup.
+ */
+public class UserPrincipal extends User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final String name;
+    private final long tokenVersion;
+
+    public UserPrincipal(String id, String name, String email, String password, long tokenVersion,
+                         Collection<? extends GrantedAuthority> authorities) {
+        super(email, password == null ? "" : password, authorities);
+        this.id = id;
+        this.name = name;
+        this.tokenVersion = tokenVersion;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public String getEmail() {
+        return getUsername();
+    }
+}
@@ -2,7 +2,6 @@ package com.example.ecommerce.service.auth;
 
 import com.example.ecommerce.repository.UserRepository;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -20,12 +19,13 @@ public class UserPrincipalService implements UserDetailsService {
     }
 
     @Override
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    public UserPrincipal loadUserByUsername(String username) throws UsernameNotFoundException {
         var user = userRepository.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         var authorities = user.getRoles().stream()
                 .map(role -> new SimpleGrantedAuthority(role.name()))
                 .toList();
-        return new User(user.getEmail(), user.getPassword(), authorities);
+        return new UserPrincipal(user.getId(), user.getName(), user.getEmail(), user.getPassword(),
+                user.getTokenVersion(), authorities);
     }
 }
@@ -0,0 +1,38 @@
+package com.example.ecommerce.service.auth;
+
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Claims of a token whose signature and expiry have already been checked by
+ * {@link JwtService#verify}. Immutable, so one instance can be shared by every
+ * request that presents the same token.
+ */
+public record VerifiedToken(String subject,
+                            String userId,
+                            String name,
+                            long tokenVersion,
+                            List<String> roles,
+                            Instant expiresAt) {
+
+    public VerifiedToken {
+        roles = List.copyOf(roles);
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+
+    /**
+     * Principal built from the claims alone, or null for tokens issued before the user id claim existed.
+     */
+    public UserPrincipal toPrincipal() {
+        if (userId == null) {
+            return null;
+        }
+        return new UserPrincipal(userId, name, subject, null, tokenVersion,
+                roles.stream().map(SimpleGrantedAuthority::new).toList());
+    }
+}
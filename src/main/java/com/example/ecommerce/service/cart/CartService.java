@@ -7,120 +7,214 @@ import com.example.ecommerce.exception.custom.BadRequestException;
 import com.example.ecommerce.exception.custom.ResourceNotFoundException;
 import com.example.ecommerce.model.Cart;
 import com.example.ecommerce.model.Product;
+import com.example.ecommerce.model.User;
 import com.example.ecommerce.model.embedded.CartItem;
 import com.example.ecommerce.repository.CartRepository;
-import com.example.ecommerce.repository.ProductRepository;
 import com.example.ecommerce.repository.UserRepository;
+import com.example.ecommerce.service.product.ProductLookupService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Every cart mutation is a single atomic update of the cart document
+ * ($inc on the matched item, $push with upsert, $pull), so concurrent requests
+ * from the same user cannot overwrite each other's changes.
+ */
 @Service
 public class CartService {
 
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+    private static final FindAndModifyOptions RETURN_NEW_UPSERT = FindAndModifyOptions.options().returnNew(true).upsert(true);
+
     private final CartRepository cartRepository;
-    private final ProductRepository productRepository;
+    private final ProductLookupService productLookupService;
     private final UserRepository userRepository;
+    private final MongoTemplate mongoTemplate;
 
-    public CartService(CartRepository cartRepository, ProductRepository productRepository, UserRepository userRepository) {
+    public CartService(CartRepository cartRepository, ProductLookupService productLookupService,
+                       UserRepository userRepository, MongoTemplate mongoTemplate) {
         this.cartRepository = cartRepository;
-        this.productRepository = productRepository;
+        this.productLookupService = productLookupService;
         this.userRepository = userRepository;
+        this.mongoTemplate = mongoTemplate;
     }
 
-    @Transactional
-    public CartResponse addItem(String userEmail, AddCartItemRequest request) {
-        Product product = productRepository.findById(request.getProductId())
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+    public CartResponse addItem(String userId, AddCartItemRequest request) {
+        Product product = productLookupService.getById(request.getProductId());
         if (request.getQuantity() > product.getStock()) {
             throw new BadRequestException("Insufficient stock");
         }
-        String userId = resolveUserId(userEmail);
-        Cart cart = findOrMigrateCart(userId, userEmail);
-        List<CartItem> items = new ArrayList<>(cart.getItems());
-        CartItem existing = items.stream().filter(i -> i.getProductId().equals(product.getId())).findFirst().orElse(null);
-        if (existing == null) {
+        for (int attempt = 0; ; attempt++) {
+            Cart cart = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("userId").is(userId).and("items.productId").is(product.getId())),
+                    new Update().inc("items.$.quantity", request.getQuantity()),
+                    RETURN_NEW,
+                    Cart.class);
+            if (cart != null) {
+                return toResponse(cart);
+            }
             CartItem item = new CartItem();
             item.setProductId(product.getId());
             item.setQuantity(request.getQuantity());
-            items.add(item);
-        } else {
-            existing.setQuantity(existing.getQuantity() + request.getQuantity());
+            try {
+                cart = mongoTemplate.findAndModify(
+                        Query.query(Criteria.where("userId").is(userId).and("items.productId").ne(product.getId())),
+                        new Update().push("items", item),
+                        RETURN_NEW_UPSERT,
+                        Cart.class);
+                return toResponse(cart);
+            } catch (DuplicateKeyException e) {
+                // a concurrent add created the cart or pushed this product first; the $inc will match now
+                if (attempt >= 2) {
+                    throw e;
+                }
+            }
         }
-        cart.setItems(items);
-        cartRepository.save(cart);
-        return toResponse(cart);
     }
 
-    @Transactional
-    public CartResponse updateQuantity(String userEmail, String productId, int quantity) {
-        String userId = resolveUserId(userEmail);
-        Cart cart = findOrMigrateCart(userId, userEmail);
-        cart.getItems().stream()
-                .filter(i -> i.getProductId().equals(productId))
-                .findFirst()
-                .ifPresentOrElse(item -> item.setQuantity(quantity),
-                        () -> { throw new ResourceNotFoundException("Item not found in cart"); });
-        cartRepository.save(cart);
+    public CartResponse updateQuantity(String userId, String productId, int quantity) {
+        Cart cart = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("userId").is(userId).and("items.productId").is(productId)),
+                new Update().set("items.$.quantity", quantity),
+                RETURN_NEW,
+                Cart.class);
+        if (cart == null) {
+            throw new ResourceNotFoundException("Item not found in cart");
+        }
         return toResponse(cart);
     }
 
-    @Transactional
-    public CartResponse removeItem(String userEmail, String productId) {
-        String userId = resolveUserId(userEmail);
-        Cart cart = findOrMigrateCart(userId, userEmail);
-        cart.getItems().removeIf(i -> i.getProductId().equals(productId));
-        cartRepository.save(cart);
-        return toResponse(cart);
+    public CartResponse removeItem(String userId, String productId) {
+        Cart cart = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("userId").is(userId)),
+                new Update().pull("items", Query.query(Criteria.where("productId").is(productId)).getQueryObject()),
+                RETURN_NEW,
+                Cart.class);
+        return toResponse(cart != null ? cart : emptyCart(userId));
     }
 
-    public CartResponse getCart(String userEmail) {
-        String userId = resolveUserId(userEmail);
-        Cart cart = findOrCreateCart(userId, userEmail);
-        return toResponse(cart);
+    /**
+     * Pulls exactly the given lines, matched on product and quantity, e.g. once they were ordered.
+     * Items added or changed meanwhile, say from another tab, stay in the cart.
+     */
+    public void removeLines(String userId, List<CartItem> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        Criteria ordered = new Criteria().orOperator(lines.stream()
+                .map(l -> Criteria.where("productId").is(l.getProductId()).and("quantity").is(l.getQuantity()))
+                .toList());
+        mongoTemplate.updateFirst(Query.query(Criteria.where("userId").is(userId)),
+                new Update().pull("items", Query.query(ordered).getQueryObject()),
+                Cart.class);
     }
 
-    private String resolveUserId(String userEmail) {
-        return userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"))
-                .getId();
+    public CartResponse getCart(String userId) {
+        return toResponse(cartRepository.findByUserId(userId).orElseGet(() -> emptyCart(userId)));
     }
 
-    private Cart findOrCreateCart(String userId, String userEmail) {
-        return cartRepository.findByUserId(userId)
-                .or(() -> cartRepository.findByUserId(userEmail)) // migrate old carts stored by email
-                .map(cart -> {
-                    if (!cart.getUserId().equals(userId)) {
-                        cart.setUserId(userId);
-                        cartRepository.save(cart);
-                    }
-                    return cart;
-                })
-                .orElseGet(() -> {
-                    Cart c = new Cart();
-                    c.setUserId(userId);
-                    return c;
-                });
+    private static Cart emptyCart(String userId) {
+        Cart cart = new Cart();
+        cart.setUserId(userId);
+        return cart;
     }
 
-    private Cart findOrMigrateCart(String userId, String userEmail) {
-        Cart cart = findOrCreateCart(userId, userEmail);
-        if (cart.getUserId().equals(userEmail)) {
-            cart.setUserId(userId);
-            cart = cartRepository.save(cart);
+    /**
+     * Older versions keyed carts by email and allowed several carts per user. Re-key and merge them
+     * once at startup, then create the unique userId index the per-request upserts above rely on.
+     * Declaring the index on the entity would make startup fail on such data before this could run.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyCarts() {
+        List<Cart> legacy = mongoTemplate.find(Query.query(Criteria.where("userId").regex("@")), Cart.class);
+        int migrated = 0;
+        for (Cart cart : legacy) {
+            User user = userRepository.findByEmail(cart.getUserId()).orElse(null);
+            if (user == null) {
+                continue;
+            }
+            try {
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(cart.getId())),
+                        new Update().set("userId", user.getId()), Cart.class);
+                migrated++;
+            } catch (DuplicateKeyException e) {
+                // the index exists from an earlier start; fold the legacy cart into the current one
+                Cart current = mongoTemplate.findOne(Query.query(Criteria.where("userId").is(user.getId())), Cart.class);
+                if (current != null) {
+                    merge(current, List.of(cart));
+                    migrated++;
+                }
+            }
         }
-        return cart;
+        int merged = mergeDuplicateCarts();
+        mongoTemplate.indexOps(Cart.class).ensureIndex(new Index().on("userId", Sort.Direction.ASC).unique());
+        if (migrated > 0 || merged > 0) {
+            System.out.println("Migrated " + migrated + " legacy carts to user ids and merged " + merged + " duplicate carts");
+        }
+    }
+
+    private int mergeDuplicateCarts() {
+        Aggregation duplicates = Aggregation.newAggregation(
+                Aggregation.group("userId").push("_id").as("ids").count().as("count"),
+                Aggregation.match(Criteria.where("count").gt(1)));
+        int merged = 0;
+        for (Document group : mongoTemplate.aggregate(duplicates, Cart.class, Document.class).getMappedResults()) {
+            List<Cart> carts = mongoTemplate.find(
+                    Query.query(Criteria.where("_id").in(group.getList("ids", Object.class))).with(Sort.by("_id")), Cart.class);
+            if (carts.size() > 1) {
+                merge(carts.get(0), carts.subList(1, carts.size()));
+                merged += carts.size() - 1;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Adds the others' quantities into the kept cart, then deletes the others.
+     */
+    private void merge(Cart kept, List<Cart> others) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        kept.getItems().forEach(i -> quantities.merge(i.getProductId(), i.getQuantity(), Integer::sum));
+        others.forEach(c -> c.getItems().forEach(i -> quantities.merge(i.getProductId(), i.getQuantity(), Integer::sum)));
+        List<CartItem> items = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> {
+            CartItem item = new CartItem();
+            item.setProductId(productId);
+            item.setQuantity(quantity);
+            items.add(item);
+        });
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(kept.getId())),
+                new Update().set("items", items), Cart.class);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(others.stream().map(Cart::getId).toList())), Cart.class);
     }
 
     private CartResponse toResponse(Cart cart) {
         CartResponse resp = new CartResponse();
         resp.setId(cart.getId());
         List<CartItemResponse> items = new ArrayList<>();
+        Map<String, Product> products = productLookupService.findAllById(
+                cart.getItems().stream().map(CartItem::getProductId).toList());
         for (CartItem item : cart.getItems()) {
-            Product p = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+            Product p = products.get(item.getProductId());
+            if (p == null) {
+                throw new ResourceNotFoundException("Product not found");
+            }
             CartItemResponse cir = new CartItemResponse();
             cir.setProductId(item.getProductId());
             cir.setQuantity(item.getQuantity());
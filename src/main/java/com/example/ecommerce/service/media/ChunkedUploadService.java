@@ -0,0 +1,316 @@
+package com.example.ecommerce.service.media;
+
+import com.example.ecommerce.dto.request.media.UploadInitRequest;
+import com.example.ecommerce.dto.response.media.UploadSessionResponse;
+import com.example.ecommerce.exception.custom.BadRequestException;
+import com.example.ecommerce.exception.custom.ResourceNotFoundException;
+import com.example.ecommerce.model.UploadSession;
+import com.example.ecommerce.model.enums.UploadStatus;
+import com.example.ecommerce.repository.UploadSessionRepository;
+import com.example.ecommerce.util.storage.FileStorageService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resumable uploads: the client initiates a session, PUTs fixed-size chunks at
+ * their offsets in any order (retrying any that fail), then completes it. Each
+ * chunk is written once, with positional writes straight into a preallocated
+ * staging file, and is checked against its SHA-256 as it streams. Staging
+ * files live on this node's disk, so chunk writes and completion are ordered by
+ * in-process locks. Completing moves the file into storage, and the session id
+ * can then be passed as ProductRequest.imageUploadId. Sessions that are never
+ * attached expire and are swept.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Duration SESSION_TTL = Duration.ofHours(24);
+    private static final Duration COMPLETING_TIMEOUT = Duration.ofHours(1);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int LOCK_STRIPES = 64;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final MongoTemplate mongoTemplate;
+    private final FileStorageService fileStorageService;
+    private final int chunkSize;
+    private final long maxSize;
+    private final ReadWriteLock[] locks = new ReadWriteLock[LOCK_STRIPES];
+
+    public ChunkedUploadService(UploadSessionRepository uploadSessionRepository,
+                                MongoTemplate mongoTemplate,
+                                FileStorageService fileStorageService,
+                                @Value("${app.storage.chunk-size:8388608}") int chunkSize,
+                                @Value("${app.storage.max-upload-size:2147483648}") long maxSize) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.fileStorageService = fileStorageService;
+        this.chunkSize = chunkSize;
+        this.maxSize = maxSize;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    public UploadSessionResponse initiate(String owner, UploadInitRequest request) throws IOException {
+        if (!StringUtils.hasText(request.getFilename())) {
+            throw new BadRequestException("filename is required");
+        }
+        if (request.getSize() <= 0 || request.getSize() > maxSize) {
+            throw new BadRequestException("size must be between 1 and " + maxSize + " bytes");
+        }
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setOwner(owner);
+        session.setFilename(StringUtils.getFilename(StringUtils.cleanPath(request.getFilename())));
+        session.setSize(request.getSize());
+        session.setChunkSize(chunkSize);
+        session.setTotalChunks((int) ((request.getSize() + chunkSize - 1) / chunkSize));
+        session.setStatus(UploadStatus.OPEN);
+        session.setCreatedAt(Instant.now());
+        session.setExpiresAt(session.getCreatedAt().plus(SESSION_TTL));
+
+        // sparse on most filesystems; chunks fill it in place in any order
+        try (RandomAccessFile file = new RandomAccessFile(stagingFile(session.getId()).toFile(), "rw")) {
+            file.setLength(session.getSize());
+        }
+        return toResponse(uploadSessionRepository.save(session));
+    }
+
+    public UploadSessionResponse status(String owner, String uploadId) {
+        return toResponse(findOwned(owner, uploadId));
+    }
+
+    /**
+     * Writes one chunk at its offset. The chunk must start on a chunk boundary and be exactly
+     * chunkSize bytes (the last one may be shorter); re-sending a chunk overwrites it. The body is
+     * written straight into the staging file and hashed on the way. The chunk is unmarked before
+     * the write and only marked received once its SHA-256 matches, so a corrupt or cut-off
+     * upload leaves it missing until the client sends it again.
+     */
+    public UploadSessionResponse writeChunk(String owner, String uploadId, long offset, String sha256, InputStream body) throws IOException {
+        UploadSession session = findOwned(owner, uploadId);
+        requireOpen(session);
+        if (offset < 0 || offset >= session.getSize() || offset % session.getChunkSize() != 0) {
+            throw new BadRequestException("offset must be a multiple of " + session.getChunkSize() + " within the file");
+        }
+        if (!StringUtils.hasText(sha256)) {
+            throw new BadRequestException("Chunk checksum header is required");
+        }
+        int index = (int) (offset / session.getChunkSize());
+        long length = Math.min(session.getChunkSize(), session.getSize() - offset);
+        Query open = Query.query(Criteria.where("_id").is(uploadId).and("status").is(UploadStatus.OPEN));
+
+        // complete() takes the write lock to claim the session, so the file cannot change under it
+        ReadWriteLock lock = lockFor(uploadId);
+        lock.readLock().lock();
+        try {
+            if (mongoTemplate.updateFirst(open, new Update().pull("receivedChunks", index), UploadSession.class).getMatchedCount() == 0) {
+                throw new BadRequestException("Upload is no longer open");
+            }
+            MessageDigest digest = sha256();
+            try (FileChannel channel = FileChannel.open(stagingFile(uploadId), StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long written = 0;
+                int n;
+                while ((n = body.read(buffer)) > 0) {
+                    if (written + n > length) {
+                        throw new BadRequestException("Chunk is larger than " + length + " bytes");
+                    }
+                    digest.update(buffer, 0, n);
+                    ByteBuffer bb = ByteBuffer.wrap(buffer, 0, n);
+                    while (bb.hasRemaining()) {
+                        channel.write(bb, offset + written + bb.position());
+                    }
+                    written += n;
+                }
+                if (written != length) {
+                    throw new BadRequestException("Chunk is " + written + " bytes, expected " + length);
+                }
+            }
+            if (!HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(sha256.trim())) {
+                throw new BadRequestException("Checksum mismatch for chunk at offset " + offset + ", send it again");
+            }
+            UploadSession updated = mongoTemplate.findAndModify(open,
+                    new Update().addToSet("receivedChunks", index).set("expiresAt", Instant.now().plus(SESSION_TTL)),
+                    FindAndModifyOptions.options().returnNew(true),
+                    UploadSession.class);
+            if (updated == null) {
+                throw new BadRequestException("Upload is no longer open");
+            }
+            return toResponse(updated);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public UploadSessionResponse complete(String owner, String uploadId) throws IOException {
+        UploadSession session = findOwned(owner, uploadId);
+        if (session.getStatus() == UploadStatus.COMPLETE) {
+            return toResponse(session);
+        }
+        if (session.getReceivedChunks().size() < session.getTotalChunks()) {
+            throw new BadRequestException("Missing " + (session.getTotalChunks() - session.getReceivedChunks().size()) + " chunks");
+        }
+        // claim the session so concurrent completes or late chunks cannot touch the file; a
+        // claim that outlives COMPLETING_TIMEOUT is treated as abandoned by the sweeper
+        UploadSession claimed;
+        ReadWriteLock lock = lockFor(uploadId);
+        lock.writeLock().lock();
+        try {
+            claimed = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(uploadId).and("status").is(UploadStatus.OPEN)),
+                    new Update().set("status", UploadStatus.COMPLETING).set("expiresAt", Instant.now().plus(COMPLETING_TIMEOUT)),
+                    FindAndModifyOptions.options().returnNew(true),
+                    UploadSession.class);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (claimed == null) {
+            throw new BadRequestException("Upload is already being completed");
+        }
+        String url;
+        try {
+            url = fileStorageService.storeFile(stagingFile(uploadId), claimed.getFilename());
+        } catch (IOException | RuntimeException e) {
+            // storeFile may already have moved or deleted the staging file, so the chunks cannot be trusted
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(uploadId).and("status").is(UploadStatus.COMPLETING)),
+                    new Update().set("status", UploadStatus.FAILED).set("expiresAt", Instant.now().plus(SESSION_TTL)),
+                    UploadSession.class);
+            throw e;
+        }
+        UploadSession completed = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(uploadId).and("status").is(UploadStatus.COMPLETING)),
+                new Update().set("status", UploadStatus.COMPLETE).set("url", url).set("expiresAt", Instant.now().plus(SESSION_TTL)),
+                FindAndModifyOptions.options().returnNew(true),
+                UploadSession.class);
+        if (completed == null) {
+            fileStorageService.release(url); // swept as abandoned meanwhile
+            throw new BadRequestException("Upload expired while completing");
+        }
+        return toResponse(completed);
+    }
+
+    /**
+     * Hands a completed upload over to a product: the storage reference taken on completion
+     * now belongs to the caller, and the session is removed so it cannot be attached twice.
+     */
+    public String attach(String uploadId) {
+        UploadSession session = mongoTemplate.findAndRemove(
+                Query.query(Criteria.where("_id").is(uploadId).and("status").is(UploadStatus.COMPLETE)),
+                UploadSession.class);
+        if (session == null) {
+            throw new BadRequestException("Upload " + uploadId + " is not complete or was already used");
+        }
+        return session.getUrl();
+    }
+
+    public void abort(String owner, String uploadId) throws IOException {
+        findOwned(owner, uploadId);
+        UploadSession session = mongoTemplate.findAndRemove(
+                Query.query(Criteria.where("_id").is(uploadId).and("status").in(UploadStatus.OPEN, UploadStatus.COMPLETE, UploadStatus.FAILED)),
+                UploadSession.class);
+        if (session != null) {
+            discard(session);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.storage.upload-sweep-ms:900000}")
+    public void sweepExpired() {
+        List<UploadSession> expired = mongoTemplate.find(
+                Query.query(Criteria.where("expiresAt").lt(Instant.now())).limit(500), UploadSession.class);
+        for (UploadSession candidate : expired) {
+            UploadSession session = mongoTemplate.findAndRemove(
+                    Query.query(Criteria.where("_id").is(candidate.getId())
+                            .and("expiresAt").lt(Instant.now())
+                            .and("status").in(UploadStatus.OPEN, UploadStatus.COMPLETE, UploadStatus.FAILED, UploadStatus.COMPLETING)),
+                    UploadSession.class);
+            if (session == null) {
+                continue; // attached or extended meanwhile
+            }
+            try {
+                discard(session);
+            } catch (IOException e) {
+                System.err.println("Failed to clean up upload " + session.getId() + ": " + e.getMessage());
+            }
+        }
+        if (!expired.isEmpty()) {
+            System.out.println("Swept " + expired.size() + " expired upload sessions");
+        }
+    }
+
+    private void discard(UploadSession session) throws IOException {
+        Files.deleteIfExists(stagingFile(session.getId()));
+        if (session.getUrl() != null) {
+            fileStorageService.release(session.getUrl());
+        }
+    }
+
+    private static void requireOpen(UploadSession session) {
+        if (session.getStatus() != UploadStatus.OPEN) {
+            throw new BadRequestException("Upload is already " + session.getStatus().name().toLowerCase());
+        }
+    }
+
+    private ReadWriteLock lockFor(String uploadId) {
+        return locks[Math.floorMod(uploadId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private UploadSession findOwned(String owner, String uploadId) {
+        UploadSession session = uploadSessionRepository.findById(uploadId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload not found"));
+        if (!session.getOwner().equals(owner)) {
+            throw new ResourceNotFoundException("Upload not found");
+        }
+        return session;
+    }
+
+    private Path stagingFile(String uploadId) throws IOException {
+        return fileStorageService.stagingDirectory().resolve(uploadId + ".part");
+    }
+
+    private static UploadSessionResponse toResponse(UploadSession session) {
+        UploadSessionResponse resp = new UploadSessionResponse();
+        resp.setUploadId(session.getId());
+        resp.setSize(session.getSize());
+        resp.setChunkSize(session.getChunkSize());
+        resp.setTotalChunks(session.getTotalChunks());
+        resp.setReceivedChunks(session.getReceivedChunks().stream().sorted().toList());
+        resp.setStatus(session.getStatus().name());
+        resp.setUrl(session.getUrl());
+        resp.setExpiresAt(session.getExpiresAt());
+        return resp;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.ecommerce.service.order;
+
+import com.example.ecommerce.exception.custom.BadRequestException;
+import com.example.ecommerce.model.InventoryHold;
+import com.example.ecommerce.model.Order;
+import com.example.ecommerce.model.enums.HoldStatus;
+import com.example.ecommerce.model.enums.OrderStatus;
+import com.example.ecommerce.service.product.InventoryService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Time-boxed reservations for unpaid orders. Placing an order writes a hold
+ * that expires after app.inventory.hold-minutes, and only then deducts the
+ * stock on the hold's behalf. A crash at any point therefore leaves a hold the
+ * sweeper will find. Payment confirms the hold. The sweeper releases expired
+ * holds in batches: it returns their stock and cancels orders that are still
+ * CREATED, so abandoned checkouts stop locking up sellable stock. Every status
+ * change is a conditional findAndModify, so payment and expiry cannot both
+ * win. A release first moves the hold to RELEASING under a lease and is retried
+ * until it reaches RELEASED. Giving stock back is idempotent, so a retry never
+ * returns it twice.
+ */
+@Service
+public class InventoryHoldService {
+
+    private static final int SWEEP_BATCH = 200;
+    private static final Duration RELEASE_LEASE = Duration.ofMinutes(5);
+
+    private final MongoTemplate mongoTemplate;
+    private final InventoryService inventoryService;
+    private final Duration holdDuration;
+
+    public InventoryHoldService(MongoTemplate mongoTemplate,
+                                InventoryService inventoryService,
+                                @Value("${app.inventory.hold-minutes:15}") long holdMinutes) {
+        this.mongoTemplate = mongoTemplate;
+        this.inventoryService = inventoryService;
+        this.holdDuration = Duration.ofMinutes(holdMinutes);
+    }
+
+    /**
+     * Records the hold, then deducts its stock.
+     *
+     * @throws BadRequestException if any product is short; nothing stays deducted or held
+     */
+    public void hold(String orderId, Map<String, Integer> quantities, Map<String, String> names) {
+        InventoryHold hold = new InventoryHold();
+        hold.setId(orderId);
+        hold.setQuantities(new HashMap<>(quantities));
+        hold.setStatus(HoldStatus.HELD);
+        hold.setCreatedAt(Instant.now());
+        hold.setExpiresAt(hold.getCreatedAt().plus(holdDuration));
+        mongoTemplate.insert(hold);
+        try {
+            inventoryService.deduct(orderId, quantities, names);
+        } catch (BadRequestException e) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(orderId).and("status").is(HoldStatus.HELD)), InventoryHold.class);
+            throw e;
+        }
+    }
+
+    /**
+     * Makes the deduction permanent once the order is paid. If the hold already expired, the stock
+     * is deducted again when it is still available.
+     *
+     * @return false if the hold expired and the stock has since been sold, so the order cannot be filled
+     * @throws BadRequestException if the hold is being released right now; retrying will settle it
+     */
+    public boolean confirm(String orderId) {
+        InventoryHold hold = transition(orderId, HoldStatus.HELD, HoldStatus.CONFIRMED);
+        if (hold != null) {
+            inventoryService.confirm(orderId, hold.getQuantities().keySet());
+            return true;
+        }
+        InventoryHold existing = mongoTemplate.findById(orderId, InventoryHold.class);
+        if (existing == null || existing.getStatus() == HoldStatus.CONFIRMED) {
+            return true; // order placed before holds existed, or confirmed already
+        }
+        if (existing.getStatus() == HoldStatus.RELEASING) {
+            throw new BadRequestException("Order " + orderId + " is being released, please retry shortly");
+        }
+        if (transition(orderId, HoldStatus.RELEASED, HoldStatus.CONFIRMED) == null) {
+            return true; // confirmed concurrently
+        }
+        try {
+            inventoryService.deduct(orderId, existing.getQuantities(), Map.of());
+            inventoryService.confirm(orderId, existing.getQuantities().keySet());
+            return true;
+        } catch (BadRequestException e) {
+            transition(orderId, HoldStatus.CONFIRMED, HoldStatus.RELEASED);
+            return false;
+        }
+    }
+
+    /**
+     * Gives the stock back right away, e.g. when the payment failed. If this fails midway, the
+     * sweeper finishes the release once the lease runs out.
+     */
+    public void release(String orderId) {
+        InventoryHold hold = claimForRelease(Criteria.where("_id").is(orderId).and("status").is(HoldStatus.HELD));
+        if (hold != null) {
+            finishRelease(List.of(hold));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.hold-sweep-ms:60000}")
+    public void releaseExpired() {
+        int released = 0;
+        List<InventoryHold> expired;
+        try {
+            do {
+                Instant now = Instant.now();
+                Criteria due = Criteria.where("status").in(HoldStatus.HELD, HoldStatus.RELEASING).and("expiresAt").lt(now);
+                expired = mongoTemplate.find(Query.query(due).limit(SWEEP_BATCH), InventoryHold.class);
+                List<InventoryHold> claimed = new ArrayList<>();
+                for (InventoryHold candidate : expired) {
+                    // expired holds, plus releases whose lease ran out without finishing
+                    InventoryHold hold = claimForRelease(Criteria.where("_id").is(candidate.getId())
+                            .and("status").in(HoldStatus.HELD, HoldStatus.RELEASING)
+                            .and("expiresAt").lt(now));
+                    if (hold != null) { // not paid or claimed in the meantime
+                        claimed.add(hold);
+                    }
+                }
+                if (!claimed.isEmpty()) {
+                    finishRelease(claimed);
+                    mongoTemplate.updateMulti(
+                            Query.query(Criteria.where("_id").in(claimed.stream().map(InventoryHold::getId).toList())
+                                    .and("status").is(OrderStatus.CREATED)),
+                            new Update().set("status", OrderStatus.CANCELLED),
+                            Order.class);
+                    released += claimed.size();
+                }
+            } while (expired.size() == SWEEP_BATCH);
+        } catch (RuntimeException e) {
+            System.err.println("Releasing expired inventory holds failed, will retry: " + e.getMessage());
+        }
+        if (released > 0) {
+            System.out.println("Released " + released + " expired inventory holds");
+        }
+    }
+
+    private InventoryHold claimForRelease(Criteria criteria) {
+        return mongoTemplate.findAndModify(
+                Query.query(criteria),
+                new Update().set("status", HoldStatus.RELEASING).set("expiresAt", Instant.now().plus(RELEASE_LEASE)),
+                FindAndModifyOptions.options().returnNew(true),
+                InventoryHold.class);
+    }
+
+    private void finishRelease(List<InventoryHold> holds) {
+        Map<String, Map<String, Integer>> quantities = new HashMap<>();
+        holds.forEach(h -> quantities.put(h.getId(), h.getQuantities()));
+        inventoryService.release(quantities);
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(quantities.keySet()).and("status").is(HoldStatus.RELEASING)),
+                new Update().set("status", HoldStatus.RELEASED),
+                InventoryHold.class);
+    }
+
+    private InventoryHold transition(String orderId, HoldStatus from, HoldStatus to) {
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(orderId).and("status").is(from)),
+                new Update().set("status", to),
+                InventoryHold.class);
+    }
+}
@@ -8,115 +8,120 @@ import com.example.ecommerce.exception.custom.ResourceNotFoundException;
 import com.example.ecommerce.model.Cart;
 import com.example.ecommerce.model.Order;
 import com.example.ecommerce.model.Product;
-import com.example.ecommerce.model.User;
 import com.example.ecommerce.model.embedded.OrderItem;
 import com.example.ecommerce.model.enums.OrderStatus;
+import com.example.ecommerce.model.enums.OutboxEventType;
 import com.example.ecommerce.repository.CartRepository;
 import com.example.ecommerce.repository.OrderRepository;
-import com.example.ecommerce.repository.ProductRepository;
-import com.example.ecommerce.repository.UserRepository;
-import com.example.ecommerce.service.app.EmailService;
-import com.example.ecommerce.service.payment.PaymentService;
+import com.example.ecommerce.service.auth.UserPrincipal;
+import com.example.ecommerce.service.cart.CartService;
+import com.example.ecommerce.service.outbox.OutboxService;
+import com.example.ecommerce.service.product.ProductLookupService;
+import org.bson.types.ObjectId;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
 
     private final CartRepository cartRepository;
-    private final ProductRepository productRepository;
+    private final CartService cartService;
+    private final InventoryHoldService inventoryHoldService;
+    private final ProductLookupService productLookupService;
     private final OrderRepository orderRepository;
-    private final PaymentService paymentService;
+    private final OutboxService outboxService;
     private final OrderMapper orderMapper;
-    private final EmailService emailService;
-    private final UserRepository userRepository;
 
     public OrderService(CartRepository cartRepository,
-            ProductRepository productRepository,
+            CartService cartService,
+            InventoryHoldService inventoryHoldService,
+            ProductLookupService productLookupService,
             OrderRepository orderRepository,
-            PaymentService paymentService,
-            OrderMapper orderMapper,
-            EmailService emailService,
-            UserRepository userRepository) {
+            OutboxService outboxService,
+            OrderMapper orderMapper) {
         this.cartRepository = cartRepository;
-        this.productRepository = productRepository;
+        this.cartService = cartService;
+        this.inventoryHoldService = inventoryHoldService;
+        this.productLookupService = productLookupService;
         this.orderRepository = orderRepository;
-        this.paymentService = paymentService;
+        this.outboxService = outboxService;
         this.orderMapper = orderMapper;
-        this.emailService = emailService;
-        this.userRepository = userRepository;
     }
 
-    @Transactional
-    public OrderResponse placeOrder(String userEmail, PlaceOrderRequest request) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    public OrderResponse placeOrder(UserPrincipal user, PlaceOrderRequest request) {
         String userId = user.getId();
-
         Cart cart = cartRepository.findByUserId(userId)
-                .or(() -> cartRepository.findByUserId(userEmail)) // migrate legacy carts saved with email
-                .map(c -> {
-                    if (!c.getUserId().equals(userId)) {
-                        c.setUserId(userId);
-                        cartRepository.save(c);
-                    }
-                    return c;
-                })
                 .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
         if (cart.getItems().isEmpty()) {
             throw new BadRequestException("Cart is empty");
         }
-        // Build order items and compute total with stock check
+        // Build order items and compute total; stock is checked atomically by InventoryService
+        Map<String, Product> products = productLookupService.findAllById(
+                cart.getItems().stream().map(ci -> ci.getProductId()).toList());
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        Map<String, String> names = new HashMap<>();
         List<OrderItem> items = cart.getItems().stream().map(ci -> {
-            Product p = productRepository.findById(ci.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+            Product p = products.get(ci.getProductId());
+            if (p == null) {
+                throw new ResourceNotFoundException("Product not found");
+            }
             if (ci.getQuantity() > p.getStock()) {
                 throw new BadRequestException("Insufficient stock for product: " + p.getName());
             }
+            quantities.merge(p.getId(), ci.getQuantity(), Integer::sum);
+            names.put(p.getId(), p.getName());
             OrderItem oi = new OrderItem();
             oi.setProductId(p.getId());
             oi.setName(p.getName());
             oi.setQuantity(ci.getQuantity());
             oi.setPrice(p.getPrice());
-            // deduct stock
-            p.setStock(p.getStock() - ci.getQuantity());
-            productRepository.save(p);
             return oi;
         }).collect(Collectors.toList());
 
+        // the id is fixed up front so the hold, which the sweeper can always find, is written
+        // before any stock moves
+        String orderId = new ObjectId().toHexString();
+        inventoryHoldService.hold(orderId, quantities, names);
+
         double total = items.stream().mapToDouble(i -> i.getPrice() * i.getQuantity()).sum();
         Order order = new Order();
+        order.setId(orderId);
         order.setUserId(userId);
         order.setItems(items);
         order.setTotal(total);
         order.setStatus(OrderStatus.CREATED);
-        order = orderRepository.save(order);
-
-        // Create payment intent (mock Razorpay integration)
-        String providerOrderId = paymentService.createPaymentIntent(order.getId(), total);
-        order.setPaymentId(providerOrderId);
-        orderRepository.save(order);
-
-        // Clear cart
-        cart.setItems(List.of());
-        cartRepository.save(cart);
-
+        order.setCreatedAt(Instant.now()); // auditing skips entities that already carry an id
+        // payment intent, email and analytics run later from the order's outbox, written in the
+        // same document; the client polls the order for its paymentId
+        outboxService.enqueue(order, List.of(
+                OutboxService.event(OutboxEventType.PAYMENT_INTENT, Map.of()),
+                OutboxService.event(OutboxEventType.ORDER_EMAIL, Map.of(
+                        "to", user.getEmail(),
+                        "subject", "Order Placed - webwares",
+                        "body", "Hi " + user.getName() + ", your order " + orderId + " was created with total INR " + total)),
+                OutboxService.event(OutboxEventType.ORDER_ANALYTICS, Map.of())));
         try {
-            emailService.send(user.getEmail(), "Order Placed - webwares",
-                    "Hi " + user.getName() + ", your order " + order.getId() + " was created with total INR " + total);
-        } catch (Exception e) {
-            System.err.println("Failed to send order email: " + e.getMessage());
+            order = orderRepository.save(order);
+        } catch (RuntimeException e) {
+            // the write may still have landed; if undoing fails too, the sweeper releases the
+            // hold and cancels the order once the hold expires
+            inventoryHoldService.release(orderId);
+            orderRepository.updateStatus(orderId, OrderStatus.CANCELLED);
+            throw e;
         }
+
+        // Clear only what was ordered; lines added from another tab meanwhile stay
+        cartService.removeLines(userId, cart.getItems());
         return orderMapper.toResponse(order);
     }
 
-    public List<OrderResponse> userOrders(String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-        return orderRepository.findByUserId(user.getId()).stream()
+    public List<OrderResponse> userOrders(String userId) {
+        return orderRepository.findByUserId(userId).stream()
                 .map(orderMapper::toResponse)
                 .collect(Collectors.toList());
     }
@@ -130,8 +135,14 @@ public class OrderService {
     public OrderResponse updateStatus(String orderId, OrderStatus newStatus) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        if (newStatus == OrderStatus.CANCELLED) {
+            inventoryHoldService.release(orderId);
+        } else if (newStatus != OrderStatus.CREATED && newStatus != OrderStatus.REFUND_REQUIRED
+                && !inventoryHoldService.confirm(orderId)) {
+            throw new BadRequestException("Order " + orderId + " expired and its items are no longer in stock");
+        }
         order.setStatus(newStatus);
-        orderRepository.save(order);
+        orderRepository.updateStatus(orderId, newStatus);
         return orderMapper.toResponse(order);
     }
 
@@ -0,0 +1,229 @@
+package com.example.ecommerce.service.outbox;
+
+import com.example.ecommerce.model.Order;
+import com.example.ecommerce.model.embedded.OutboxEvent;
+import com.example.ecommerce.model.enums.OrderStatus;
+import com.example.ecommerce.model.enums.OutboxStatus;
+import com.example.ecommerce.service.analytics.AnalyticsService;
+import com.example.ecommerce.service.app.EmailService;
+import com.example.ecommerce.service.payment.PaymentService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls orders whose outbox has due events and carries the events out in
+ * batches. A batch of orders is claimed with one updateMulti under a fresh
+ * claim token, so several instances can dispatch side by side. The due events
+ * run on a small worker pool, and each order's outbox is written back in one
+ * bulk update: finished events are dropped, and failed ones are kept for
+ * inspection. A claim is a lease: if the instance dies, the orders become due
+ * again when the lease expires. A batch waits at most
+ * app.outbox.batch-timeout-seconds for its handlers; a handler still running
+ * then is interrupted and counts as a failed attempt. Failed events are retried
+ * with exponential backoff up to app.outbox.max-attempts, so handlers must
+ * tolerate running more than once.
+ */
+@Component
+public class OutboxDispatcher {
+
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+    private final MongoTemplate mongoTemplate;
+    private final PaymentService paymentService;
+    private final EmailService emailService;
+    private final AnalyticsService analyticsService;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration batchTimeout;
+    private final ExecutorService workers;
+
+    public OutboxDispatcher(MongoTemplate mongoTemplate,
+                            PaymentService paymentService,
+                            EmailService emailService,
+                            AnalyticsService analyticsService,
+                            @Value("${app.outbox.batch-size:50}") int batchSize,
+                            @Value("${app.outbox.max-attempts:8}") int maxAttempts,
+                            @Value("${app.outbox.lease-seconds:60}") long leaseSeconds,
+                            @Value("${app.outbox.batch-timeout-seconds:30}") long batchTimeoutSeconds,
+                            @Value("${app.outbox.workers:4}") int workers) {
+        this.mongoTemplate = mongoTemplate;
+        this.paymentService = paymentService;
+        this.emailService = emailService;
+        this.analyticsService = analyticsService;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.batchTimeout = Duration.ofSeconds(Math.min(batchTimeoutSeconds, leaseSeconds));
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "outbox-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-ms:500}")
+    public void dispatch() {
+        // drain a backlog, but give the scheduler thread back after about one lease
+        long stopAt = System.nanoTime() + lease.toNanos();
+        int claimed;
+        do {
+            claimed = dispatchBatch();
+        } while (claimed == batchSize && System.nanoTime() < stopAt);
+    }
+
+    private int dispatchBatch() {
+        List<Order> orders = claim();
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        List<OutboxEvent> due = new ArrayList<>();
+        List<Order> owners = new ArrayList<>();
+        List<Future<?>> results = new ArrayList<>();
+        for (Order order : orders) {
+            for (OutboxEvent event : order.getOutbox()) {
+                if (event.getStatus() != OutboxStatus.PENDING || event.getNextAttemptAt().isAfter(now)) {
+                    continue;
+                }
+                event.setAttempts(event.getAttempts() + 1);
+                due.add(event);
+                owners.add(order);
+                results.add(workers.submit(() -> handle(event, order)));
+            }
+        }
+
+        // a hung SMTP or Razorpay call must not hold the batch past its claim
+        long deadline = System.nanoTime() + batchTimeout.toNanos();
+        for (int i = 0; i < due.size(); i++) {
+            OutboxEvent event = due.get(i);
+            Throwable cause = await(results.get(i), deadline);
+            if (cause == null) {
+                event.setStatus(OutboxStatus.DONE);
+                continue;
+            }
+            System.err.println("Outbox " + event.getType() + " for " + owners.get(i).getId()
+                    + " failed (attempt " + event.getAttempts() + "): " + cause.getMessage());
+            event.setLastError(String.valueOf(cause.getMessage()));
+            if (event.getAttempts() >= maxAttempts) {
+                event.setStatus(OutboxStatus.FAILED);
+            } else {
+                event.setNextAttemptAt(Instant.now().plus(backoff(event.getAttempts())));
+            }
+        }
+
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+        for (Order order : orders) {
+            List<OutboxEvent> remaining = order.getOutbox().stream()
+                    .filter(e -> e.getStatus() != OutboxStatus.DONE)
+                    .toList();
+            Instant nextDue = remaining.stream()
+                    .filter(e -> e.getStatus() == OutboxStatus.PENDING)
+                    .map(OutboxEvent::getNextAttemptAt)
+                    .min(Comparator.naturalOrder())
+                    .orElse(null);
+            Update update = new Update().set("outbox", remaining).unset("outboxClaim");
+            if (nextDue != null) {
+                update.set("outboxDueAt", nextDue);
+            } else {
+                update.unset("outboxDueAt");
+            }
+            ops.updateOne(Query.query(Criteria.where("_id").is(order.getId()).and("outboxClaim").is(order.getOutboxClaim())), update);
+        }
+        ops.execute();
+        return orders.size();
+    }
+
+    /**
+     * Marks up to batchSize orders with due events as ours: ones whose next event is due and
+     * ones whose previous claim's lease ran out.
+     */
+    private List<Order> claim() {
+        Instant now = Instant.now();
+        Query candidates = Query.query(Criteria.where("outboxDueAt").lte(now)).limit(batchSize);
+        candidates.fields().include("_id");
+        List<String> ids = mongoTemplate.find(candidates, Order.class).stream().map(Order::getId).toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String token = UUID.randomUUID().toString();
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(ids).and("outboxDueAt").lte(now)),
+                new Update().set("outboxDueAt", now.plus(lease)).set("outboxClaim", token),
+                Order.class);
+        return mongoTemplate.find(Query.query(Criteria.where("_id").in(ids).and("outboxClaim").is(token)), Order.class);
+    }
+
+    private void handle(OutboxEvent event, Order order) {
+        if (order == null || order.getStatus() == OrderStatus.CANCELLED) {
+            return; // nothing left to do for an order that is gone
+        }
+        Map<String, Object> payload = event.getPayload();
+        switch (event.getType()) {
+            case PAYMENT_INTENT -> {
+                String providerOrderId = paymentService.createPaymentIntent(order.getId(), order.getTotal());
+                mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("_id").is(order.getId()).and("paymentId").is(null)),
+                        new Update().set("paymentId", providerOrderId),
+                        Order.class);
+            }
+            case ORDER_EMAIL -> emailService.send((String) payload.get("to"),
+                    (String) payload.get("subject"), (String) payload.get("body"));
+            case ORDER_ANALYTICS -> analyticsService.recordOrderPlaced(order);
+        }
+    }
+
+    /**
+     * Waits for a handler until the batch deadline and returns what it failed with, or null. A
+     * handler still running at the deadline is interrupted and counts as a failed attempt.
+     */
+    private static Throwable await(Future<?> result, long deadline) {
+        try {
+            result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause() != null ? e.getCause() : e;
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            return new TimeoutException("handler did not finish within the batch timeout");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            return e;
+        }
+    }
+
+    private static Duration backoff(int attempts) {
+        long seconds = 1L << Math.min(attempts - 1, 20);
+        Duration delay = Duration.ofSeconds(seconds);
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+}
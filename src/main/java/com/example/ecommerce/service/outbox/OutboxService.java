@@ -0,0 +1,42 @@
+package com.example.ecommerce.service.outbox;
+
+import com.example.ecommerce.model.Order;
+import com.example.ecommerce.model.embedded.OutboxEvent;
+import com.example.ecommerce.model.enums.OutboxEventType;
+import com.example.ecommerce.model.enums.OutboxStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records side effects in the outbox of the order that caused them, so the
+ * request can return without waiting on remote services. The events are
+ * written with the order in the same single-document write, so there is no
+ * window in which one exists without the other.
+ * {@link OutboxDispatcher} carries them out.
+ */
+@Service
+public class OutboxService {
+
+    public static OutboxEvent event(OutboxEventType type, Map<String, Object> payload) {
+        Instant now = Instant.now();
+        OutboxEvent event = new OutboxEvent();
+        event.setType(type);
+        event.setPayload(new HashMap<>(payload));
+        event.setStatus(OutboxStatus.PENDING);
+        event.setNextAttemptAt(now);
+        event.setCreatedAt(now);
+        return event;
+    }
+
+    /**
+     * Adds the events to an order that has not been saved yet and makes them due right away.
+     */
+    public void enqueue(Order order, List<OutboxEvent> events) {
+        order.getOutbox().addAll(events);
+        order.setOutboxDueAt(Instant.now());
+    }
+}
@@ -8,6 +8,7 @@ import com.example.ecommerce.model.Payment;
 import com.example.ecommerce.model.enums.OrderStatus;
 import com.example.ecommerce.repository.OrderRepository;
 import com.example.ecommerce.repository.PaymentRepository;
+import com.example.ecommerce.service.order.InventoryHoldService;
 import com.razorpay.RazorpayClient;
 import com.razorpay.RazorpayException;
 import com.razorpay.Utils;
@@ -22,25 +23,37 @@ import java.util.Optional;
 @Service
 public class PaymentService {
 
+    private static final String REFUND_REQUIRED = OrderStatus.REFUND_REQUIRED.name();
+
     private final RazorpayClient razorpayClient;
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
+    private final InventoryHoldService inventoryHoldService;
     private final String razorpayKeyId;
     private final String razorpaySecret;
 
     public PaymentService(RazorpayClient razorpayClient,
             PaymentRepository paymentRepository,
             OrderRepository orderRepository,
+            InventoryHoldService inventoryHoldService,
             @Value("${razorpay.key-id}") String razorpayKeyId,
             @Value("${razorpay.secret}") String razorpaySecret) {
         this.razorpayClient = razorpayClient;
         this.paymentRepository = paymentRepository;
         this.orderRepository = orderRepository;
+        this.inventoryHoldService = inventoryHoldService;
         this.razorpayKeyId = razorpayKeyId;
         this.razorpaySecret = razorpaySecret;
     }
 
+    /**
+     * Creates the Razorpay order for an order, or returns the one created by an earlier attempt.
+     */
     public String createPaymentIntent(String orderId, double amount) {
+        Optional<Payment> existing = paymentRepository.findFirstByOrderId(orderId);
+        if (existing.isPresent()) {
+            return existing.get().getProviderOrderId();
+        }
         JSONObject options = new JSONObject();
         options.put("amount", (int) (amount * 100)); // paise
         options.put("currency", "INR");
@@ -87,9 +100,8 @@ public class PaymentService {
 
         Order order = orderRepository.findById(payment.getOrderId())
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
-        order.setStatus(OrderStatus.PAID);
-        order.setPaymentId(payment.getProviderPaymentId());
-        orderRepository.save(order);
+        OrderStatus status = settlePaid(order, payment);
+        orderRepository.updateStatusAndPaymentId(order.getId(), status, payment.getProviderPaymentId());
 
         PaymentResponse resp = new PaymentResponse();
         resp.setOrderId(order.getId());
@@ -108,19 +120,35 @@ public class PaymentService {
         Order order = orderRepository.findById(payment.getOrderId())
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
         if ("PAID".equalsIgnoreCase(status)) {
-            order.setStatus(OrderStatus.PAID);
+            order.setStatus(settlePaid(order, payment));
         } else if ("FAILED".equalsIgnoreCase(status)) {
+            inventoryHoldService.release(order.getId());
             order.setStatus(OrderStatus.CANCELLED);
         }
-        orderRepository.save(order);
+        orderRepository.updateStatus(order.getId(), order.getStatus());
         PaymentResponse resp = new PaymentResponse();
         resp.setOrderId(order.getId());
         resp.setProviderOrderId(payment.getProviderOrderId());
-        resp.setStatus(status);
+        resp.setStatus(payment.getStatus());
         resp.setAmount(payment.getAmount());
         return resp;
     }
 
+    /**
+     * Confirms the stock of a paid order. When the hold had expired and the stock was sold meanwhile,
+     * the money is already taken, so the order and payment are marked REFUND_REQUIRED instead of
+     * failing the request; admins find them by that status.
+     */
+    private OrderStatus settlePaid(Order order, Payment payment) {
+        if (inventoryHoldService.confirm(order.getId())) {
+            return OrderStatus.PAID;
+        }
+        System.err.println("Order " + order.getId() + " was paid after its hold expired and stock ran out; refund required");
+        payment.setStatus(REFUND_REQUIRED);
+        paymentRepository.save(payment);
+        return OrderStatus.REFUND_REQUIRED;
+    }
+
     public String getRazorpayKeyId() {
         return razorpayKeyId;
     }
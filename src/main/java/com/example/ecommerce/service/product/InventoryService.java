@@ -0,0 +1,143 @@
+package com.example.ecommerce.service.product;
+
+import com.example.ecommerce.exception.custom.BadRequestException;
+import com.example.ecommerce.model.Product;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deducts and returns product stock with atomic conditional updates, so
+ * concurrent checkouts cannot oversell and no lock is held. Every deduction is
+ * made on behalf of a hold and records the hold id in the product's heldBy
+ * array until the hold is confirmed or released. Releasing is guarded on that
+ * marker, so it is idempotent, and a hold whose deduction never happened
+ * releases nothing. Stock writes bypass ProductService, so this class keeps
+ * updatedAt and the product caches in step itself.
+ */
+@Service
+public class InventoryService {
+
+    public static final String HELD_BY = "heldBy"; // ids of the outstanding holds deducted from this product
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductCacheInvalidator cacheInvalidator;
+
+    public InventoryService(MongoTemplate mongoTemplate, ProductCacheInvalidator cacheInvalidator) {
+        this.mongoTemplate = mongoTemplate;
+        this.cacheInvalidator = cacheInvalidator;
+    }
+
+    /**
+     * Deducts every quantity or none. All lines go out as one unordered bulkWrite of
+     * guarded updates ({_id, stock >= qty} -> $inc -qty, $addToSet heldBy). The bulk
+     * result only has totals, so when fewer lines were modified than sent, the
+     * heldBy marker tells which ones went through. Those are then released again.
+     *
+     * @param holdId     the hold the stock is deducted for
+     * @param quantities product id to quantity
+     * @param names      product id to display name, for the error message
+     * @throws BadRequestException naming the products that were short
+     */
+    public void deduct(String holdId, Map<String, Integer> quantities, Map<String, String> names) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<String> ids = new ArrayList<>(quantities.keySet());
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        for (String id : ids) {
+            int qty = quantities.get(id);
+            ops.updateOne(Query.query(Criteria.where("_id").is(id).and("stock").gte(qty).and(HELD_BY).ne(holdId)),
+                    new Update().inc("stock", -qty).inc("version", 1).set("updatedAt", now).addToSet(HELD_BY, holdId));
+        }
+
+        BulkWriteResult result;
+        try {
+            result = ops.execute();
+        } catch (BulkOperationException e) {
+            result = e.getResult();
+            for (BulkWriteError error : e.getErrors()) {
+                System.err.println("Stock update failed for " + ids.get(error.getIndex()) + ": " + error.getMessage());
+            }
+        }
+        if (result.getModifiedCount() == ids.size()) {
+            refreshCaches(negate(quantities));
+            return;
+        }
+
+        // a guard failed or the product is gone; the marker shows which lines were applied
+        Query applied = Query.query(Criteria.where("_id").in(ids).and(HELD_BY).is(holdId));
+        applied.fields().include("_id");
+        Set<String> deductedIds = new HashSet<>();
+        mongoTemplate.find(applied, Product.class).forEach(p -> deductedIds.add(p.getId()));
+        List<String> shortNames = new ArrayList<>();
+        for (String id : ids) {
+            if (!deductedIds.contains(id)) {
+                shortNames.add(names.getOrDefault(id, id));
+            }
+        }
+        release(Map.of(holdId, quantities));
+        throw new BadRequestException("Insufficient stock for product: " + String.join(", ", shortNames));
+    }
+
+    /**
+     * Gives back the stock deducted for each hold, in one bulk. Lines whose product no longer
+     * carries the hold's marker were never deducted or were already given back, and are skipped.
+     *
+     * @param holds hold id to its product quantities
+     */
+    public void release(Map<String, Map<String, Integer>> holds) {
+        if (holds.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        Map<String, Integer> deltas = new HashMap<>();
+        holds.forEach((holdId, quantities) -> quantities.forEach((id, qty) -> {
+            ops.updateOne(Query.query(Criteria.where("_id").is(id).and(HELD_BY).is(holdId)),
+                    new Update().inc("stock", qty).inc("version", 1).set("updatedAt", now).pull(HELD_BY, holdId));
+            deltas.merge(id, qty, Integer::sum);
+        }));
+        ops.execute();
+        refreshCaches(deltas);
+    }
+
+    /**
+     * Makes a hold's deduction permanent by dropping its markers.
+     */
+    public void confirm(String holdId, Collection<String> productIds) {
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(productIds).and(HELD_BY).is(holdId)),
+                new Update().pull(HELD_BY, holdId), Product.class);
+    }
+
+    /**
+     * Evicts the cached views of the changed products, reading back only the fields that decide list membership.
+     */
+    private void refreshCaches(Map<String, Integer> stockDeltas) {
+        Query query = Query.query(Criteria.where("_id").in(stockDeltas.keySet()));
+        query.fields().include("category", "price", "stock");
+        cacheInvalidator.stockChanged(mongoTemplate.find(query, Product.class), stockDeltas);
+    }
+
+    private static Map<String, Integer> negate(Map<String, Integer> quantities) {
+        Map<String, Integer> negated = new HashMap<>();
+        quantities.forEach((id, qty) -> negated.put(id, -qty));
+        return negated;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.ecommerce.service.product;
+
+import com.example.ecommerce.dto.response.product.ProductResponse;
+import com.example.ecommerce.dto.response.product.ProductSummaryResponse;
+import com.example.ecommerce.model.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Evicts only the product-list, product-summary-list and product-facets
+ * entries a product write can change: results whose filter matched the
+ * product before or after the write, plus any listing that still holds the
+ * product.
+ */
+@Component
+public class ProductCacheInvalidator {
+
+    private static final List<String> PRODUCT_CACHES =
+            List.of("product-by-id", "product-list", "product-summary-list", "product-facets");
+
+    private final CacheManager cacheManager;
+
+    public ProductCacheInvalidator(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Captures the fields that decide list membership and order before a product is mutated.
+     */
+    public static Snapshot snapshot(Product product) {
+        return new Snapshot(product.getId(), product.getCategory(), product.getPrice(), product.getStock());
+    }
+
+    /**
+     * Drops every product cache entry; used after bulk writes where per-product eviction would cost more.
+     */
+    public void clearAll() {
+        for (String name : PRODUCT_CACHES) {
+            org.springframework.cache.Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    /**
+     * For stock-only writes made outside ProductService: evicts each product's by-id entry and every
+     * listing or facet entry the stock change can affect.
+     *
+     * @param stockDeltas product id to the stock change just applied
+     */
+    public void stockChanged(Collection<Product> products, Map<String, Integer> stockDeltas) {
+        org.springframework.cache.Cache byId = cacheManager.getCache("product-by-id");
+        for (Product product : products) {
+            if (byId != null) {
+                byId.evict(product.getId());
+            }
+            int delta = stockDeltas.getOrDefault(product.getId(), 0);
+            productChanged(new Snapshot(product.getId(), product.getCategory(), product.getPrice(), product.getStock() - delta), product);
+        }
+    }
+
+    public void productChanged(Snapshot before, Product after) {
+        Snapshot afterSnapshot = after != null ? snapshot(after) : null;
+        String id = before != null ? before.id() : afterSnapshot.id();
+        Predicate<ProductFilter> affected = filter -> (before != null && filter.matches(before.category(), before.price(), before.stock()))
+                || (afterSnapshot != null && filter.matches(afterSnapshot.category(), afterSnapshot.price(), afterSnapshot.stock()));
+        evict("product-list", affected, id);
+        evict("product-summary-list", affected, id);
+        evict("product-facets", affected, id);
+    }
+
+    private void evict(String cacheName, Predicate<ProductFilter> affected, String productId) {
+        org.springframework.cache.Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null || !(cache.getNativeCache() instanceof Cache<?, ?> nativeCache)) {
+            return;
+        }
+        Map<?, ?> entries = nativeCache.asMap();
+        entries.entrySet().removeIf(e -> {
+            ProductFilter filter = filterOf(e.getKey());
+            return filter == null || affected.test(filter) || containsProduct(e.getValue(), productId);
+        });
+    }
+
+    private static ProductFilter filterOf(Object key) {
+        if (key instanceof ProductListKey listKey) {
+            return listKey.filter();
+        }
+        return key instanceof ProductFilter filter ? filter : null;
+    }
+
+    private static boolean containsProduct(Object cached, String productId) {
+        if (cached instanceof Collection<?> items) {
+            for (Object item : items) {
+                if (item instanceof ProductResponse p && productId.equals(p.getId())) {
+                    return true;
+                }
+                if (item instanceof ProductSummaryResponse p && productId.equals(p.getId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public record Snapshot(String id, String category, double price, int stock) {
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.ecommerce.service.product;
+
+import com.example.ecommerce.dto.mapper.ProductMapper;
+import com.example.ecommerce.dto.response.product.ProductFacetsResponse;
+import com.example.ecommerce.dto.response.product.ProductResponse;
+import com.example.ecommerce.dto.response.product.ProductSummaryResponse;
+import com.example.ecommerce.exception.custom.ResourceNotFoundException;
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uncached product reads backing the product-by-id and product-list caches.
+ * Caffeine also calls {@link #load} to refresh hot entries in the background
+ * once they pass refreshAfterWrite, so readers keep getting the old value
+ * instead of all missing together when it expires.
+ */
+@Component
+public class ProductCacheLoader implements CacheLoader<Object, Object> {
+
+    static final double[] PRICE_BUCKET_BOUNDARIES = {0, 500, 1_000, 5_000, 10_000, 50_000, 100_000};
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final MongoTemplate mongoTemplate;
+
+    public ProductCacheLoader(ProductRepository productRepository,
+                              ProductMapper productMapper,
+                              MongoTemplate mongoTemplate) {
+        this.productRepository = productRepository;
+        this.productMapper = productMapper;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Object load(Object key) {
+        if (key instanceof ProductListKey listKey) {
+            return listKey.summary() ? loadSummaries(listKey) : loadList(listKey);
+        }
+        if (key instanceof ProductFilter filter) {
+            return loadFacets(filter);
+        }
+        if (key instanceof String id) {
+            return loadById(id);
+        }
+        throw new IllegalArgumentException("Unsupported product cache key: " + key);
+    }
+
+    public ProductResponse loadById(String id) {
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        return productMapper.toResponse(product);
+    }
+
+    public List<ProductResponse> loadList(ProductListKey key) {
+        Query query = listQuery(key);
+        query.fields().exclude(InventoryService.HELD_BY); // not mapped, and grows on busy products
+        return mongoTemplate.find(query, Product.class).stream()
+                .map(productMapper::toResponse)
+                .toList();
+    }
+
+    /**
+     * Same page as {@link #loadList} but only the fields a product grid shows are read from Mongo.
+     */
+    public List<ProductSummaryResponse> loadSummaries(ProductListKey key) {
+        Query query = listQuery(key);
+        query.fields().include("name", "price", "stock", "imageUrl", "version");
+        return mongoTemplate.find(query, Product.class).stream()
+                .map(productMapper::toSummaryResponse)
+                .toList();
+    }
+
+    private static Query listQuery(ProductListKey key) {
+        return new ProductQueryBuilder()
+                .filter(key.filter())
+                .sort(key.sort())
+                .build()
+                .skip((long) key.page() * key.size())
+                .limit(key.size());
+    }
+
+    /**
+     * Computes category, availability and price-bucket counts for the filter
+     * in a single $facet aggregation.
+     */
+    public ProductFacetsResponse loadFacets(ProductFilter filter) {
+        Object[] boundaries = new Object[PRICE_BUCKET_BOUNDARIES.length];
+        for (int i = 0; i < boundaries.length; i++) {
+            boundaries[i] = PRICE_BUCKET_BOUNDARIES[i];
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(new ProductQueryBuilder().filter(filter).criteria()),
+                Aggregation.facet(Aggregation.sortByCount("category")).as("categories")
+                        .and(Aggregation.project()
+                                        .and(ConditionalOperators.when(Criteria.where("stock").gt(0))
+                                                .then("inStock")
+                                                .otherwise("outOfStock"))
+                                        .as("availability"),
+                                Aggregation.sortByCount("availability")).as("availability")
+                        .and(Aggregation.bucket("price")
+                                .withBoundaries(boundaries)
+                                .withDefaultBucket("other")
+                                .andOutputCount().as("count")).as("priceBuckets"));
+        Document result = mongoTemplate.aggregate(aggregation, Product.class, Document.class).getUniqueMappedResult();
+
+        ProductFacetsResponse resp = new ProductFacetsResponse();
+        resp.setCategories(counts(result, "categories", "count"));
+        resp.setAvailability(counts(result, "availability", "count"));
+        Map<String, Long> priceBuckets = new LinkedHashMap<>();
+        counts(result, "priceBuckets", "count").forEach((lower, count) -> priceBuckets.put(bucketLabel(lower), count));
+        resp.setPriceBuckets(priceBuckets);
+        return resp;
+    }
+
+    private static Map<String, Long> counts(Document result, String facet, String countField) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        if (result == null) {
+            return counts;
+        }
+        for (Document d : result.getList(facet, Document.class, List.of())) {
+            Object id = d.get("_id");
+            counts.put(id != null ? id.toString() : "none", ((Number) d.get(countField)).longValue());
+        }
+        return counts;
+    }
+
+    private static String bucketLabel(String lower) {
+        if ("other".equals(lower)) {
+            // prices are at least 1, so the default bucket only holds prices above the last boundary
+            return (long) PRICE_BUCKET_BOUNDARIES[PRICE_BUCKET_BOUNDARIES.length - 1] + "+";
+        }
+        double from = Double.parseDouble(lower);
+        for (int i = 0; i < PRICE_BUCKET_BOUNDARIES.length - 1; i++) {
+            if (PRICE_BUCKET_BOUNDARIES[i] == from) {
+                return (long) from + "-" + (long) PRICE_BUCKET_BOUNDARIES[i + 1];
+            }
+        }
+        return lower;
+    }
+}
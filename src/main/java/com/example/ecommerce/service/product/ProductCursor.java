@@ -0,0 +1,113 @@
+package com.example.ecommerce.service.product;
+
+import com.example.ecommerce.exception.custom.BadRequestException;
+import com.example.ecommerce.model.Product;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * Opaque keyset cursor for product listings: the sort field, its value on the
+ * last returned product and that product's id as a tie-breaker.
+ */
+public final class ProductCursor {
+
+    public static final Set<String> SORT_FIELDS = Set.of("createdAt", "price", "name", "stock");
+
+    private static final String SEPARATOR = "\u0000";
+
+    private final String field;
+    private final Object value;
+    private final String id;
+
+    private ProductCursor(String field, Object value, String id) {
+        this.field = field;
+        this.value = value;
+        this.id = id;
+    }
+
+    public static ProductCursor after(Product last, String field) {
+        return new ProductCursor(field, sortValue(last, field), last.getId());
+    }
+
+    public static ProductCursor decode(String cursor, String expectedField) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+        if (parts.length != 4 || !parts[0].equals(expectedField)) {
+            throw new BadRequestException("Invalid cursor");
+        }
+        try {
+            Object value = switch (parts[1]) {
+                case "n" -> null;
+                case "d" -> new Date(Long.parseLong(parts[2]));
+                case "f" -> Double.parseDouble(parts[2]);
+                case "i" -> Integer.parseInt(parts[2]);
+                case "s" -> parts[2];
+                default -> throw new BadRequestException("Invalid cursor");
+            };
+            return new ProductCursor(parts[0], value, parts[3]);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String type;
+        String raw;
+        if (value == null) {
+            type = "n";
+            raw = "";
+        } else if (value instanceof Date d) {
+            type = "d";
+            raw = Long.toString(d.getTime());
+        } else if (value instanceof Double d) {
+            type = "f";
+            raw = Double.toString(d);
+        } else if (value instanceof Integer i) {
+            type = "i";
+            raw = Integer.toString(i);
+        } else {
+            type = "s";
+            raw = value.toString();
+        }
+        String joined = String.join(SEPARATOR, field, type, raw, id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Criteria matching every document strictly after this cursor in the given
+     * direction. Mongo sorts null/missing values lowest, so they come first
+     * ascending and last descending.
+     */
+    public Criteria toCriteria(Sort.Direction direction) {
+        boolean asc = direction.isAscending();
+        Criteria sameValueNextId = asc ? Criteria.where("_id").gt(id) : Criteria.where("_id").lt(id);
+        if (value == null) {
+            Criteria tie = new Criteria().andOperator(Criteria.where(field).is(null), sameValueNextId);
+            return asc ? new Criteria().orOperator(tie, Criteria.where(field).ne(null)) : tie;
+        }
+        Criteria tie = new Criteria().andOperator(Criteria.where(field).is(value), sameValueNextId);
+        if (asc) {
+            return new Criteria().orOperator(Criteria.where(field).gt(value), tie);
+        }
+        return new Criteria().orOperator(Criteria.where(field).lt(value), tie, Criteria.where(field).is(null));
+    }
+
+    private static Object sortValue(Product p, String field) {
+        return switch (field) {
+            case "createdAt" -> p.getCreatedAt() != null ? Date.from(p.getCreatedAt()) : null;
+            case "price" -> p.getPrice();
+            case "name" -> p.getName();
+            case "stock" -> p.getStock();
+            default -> throw new BadRequestException("Unsupported sort field: " + field);
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.ecommerce.service.product;
+
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.util.csv.CsvWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Streams the catalog from a Mongo cursor straight to the response. Products
+ * are written one at a time and never collected, and the product caches are
+ * bypassed. The CSV columns match what ProductImportService reads.
+ */
+@Service
+public class ProductExportService {
+
+    private static final int CURSOR_BATCH_SIZE = 1_000;
+    private static final String[] CSV_HEADER = {
+            "id", "name", "description", "price", "stock", "category", "imageUrl", "version", "updatedAt"};
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    public ProductExportService(MongoTemplate mongoTemplate, ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes CSV when format is "csv", NDJSON otherwise; the controller validates the format
+     * before the response is committed.
+     */
+    public void export(String format, Instant updatedSince, OutputStream out) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        Query query = new Query();
+        if (updatedSince != null) {
+            query.addCriteria(Criteria.where("updatedAt").gte(updatedSince))
+                    .with(Sort.by("updatedAt", "_id"));
+        }
+        query.cursorBatchSize(CURSOR_BATCH_SIZE);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CsvWriter csvWriter = csv ? new CsvWriter(writer) : null;
+        if (csvWriter != null) {
+            csvWriter.writeRecord((Object[]) CSV_HEADER);
+        }
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            Iterator<Product> it = products.iterator();
+            while (it.hasNext()) {
+                Product p = it.next();
+                if (csvWriter != null) {
+                    csvWriter.writeRecord(p.getId(), p.getName(), p.getDescription(), p.getPrice(), p.getStock(),
+                            p.getCategory(), p.getImageUrl(), p.getVersion(), p.getUpdatedAt());
+                } else {
+                    writer.write(objectMapper.writeValueAsString(toRow(p)));
+                    writer.write('\n');
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private static Map<String, Object> toRow(Product p) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", p.getId());
+        row.put("name", p.getName());
+        row.put("description", p.getDescription());
+        row.put("price", p.getPrice());
+        row.put("stock", p.getStock());
+        row.put("category", p.getCategory());
+        row.put("imageUrl", p.getImageUrl());
+        row.put("version", p.getVersion());
+        row.put("updatedAt", p.getUpdatedAt() != null ? p.getUpdatedAt().toString() : null);
+        return row;
+    }
+}
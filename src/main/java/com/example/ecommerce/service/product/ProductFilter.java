@@ -0,0 +1,37 @@
+package com.example.ecommerce.service.product;
+
+/**
+ * The filter parameters shared by product listings and facets. Used as part of
+ * cache keys so a product write can tell which cached results it could affect.
+ */
+public record ProductFilter(String category, Double minPrice, Double maxPrice, Boolean available) {
+
+    public static ProductFilter of(String category, Double minPrice, Double maxPrice, Boolean available) {
+        return new ProductFilter(category, minPrice, maxPrice, available);
+    }
+
+    /**
+     * Mirrors the predicates built by {@link ProductQueryBuilder}.
+     */
+    public boolean matches(String productCategory, double price, int stock) {
+        if (category != null && !category.isBlank()) {
+            if (productCategory == null) {
+                return false;
+            }
+            if (category.endsWith("*")) {
+                if (!productCategory.startsWith(category.substring(0, category.length() - 1))) {
+                    return false;
+                }
+            } else if (!category.equals(productCategory)) {
+                return false;
+            }
+        }
+        if (minPrice != null && price < minPrice) {
+            return false;
+        }
+        if (maxPrice != null && price > maxPrice) {
+            return false;
+        }
+        return available == null || available == (stock > 0);
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.ecommerce.service.product;
+
+import com.example.ecommerce.dto.response.product.ProductImportResponse;
+import com.example.ecommerce.exception.custom.BadRequestException;
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.util.csv.CsvFormatException;
+import com.example.ecommerce.util.csv.CsvReader;
+import com.example.ecommerce.util.storage.FileStorageService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams a CSV or NDJSON catalog into the products collection. Rows are
+ * validated one at a time and written through unordered bulk operations, so
+ * only one batch is ever held in memory. Rows with an id are upserted, the
+ * rest are inserted. An upsert only sets stock on products it creates: stock on
+ * existing products moves through checkouts and holds, and overwriting it would
+ * undo them. Caches and the search index are refreshed once at the end.
+ * An imageUrl naming a stored object takes a reference on it, and the image it
+ * replaces is released, as when an image is uploaded through the product API.
+ */
+@Service
+public class ProductImportService {
+
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final ProductCacheInvalidator cacheInvalidator;
+    private final ProductSearchIndex searchIndex;
+    private final FileStorageService fileStorageService;
+
+    public ProductImportService(MongoTemplate mongoTemplate,
+                                ObjectMapper objectMapper,
+                                ProductCacheInvalidator cacheInvalidator,
+                                ProductSearchIndex searchIndex,
+                                FileStorageService fileStorageService) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.cacheInvalidator = cacheInvalidator;
+        this.searchIndex = searchIndex;
+        this.fileStorageService = fileStorageService;
+    }
+
+    public ProductImportResponse importProducts(InputStream body, String format, int batchSize) throws IOException {
+        int batch = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+        ProductImportResponse report = new ProductImportResponse();
+        List<ImportRow> pending = new ArrayList<>(batch);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        try {
+            if ("csv".equalsIgnoreCase(format)) {
+                readCsv(reader, batch, pending, report);
+            } else if ("ndjson".equalsIgnoreCase(format)) {
+                readNdjson(reader, batch, pending, report);
+            } else {
+                throw new BadRequestException("Unsupported import format: " + format);
+            }
+            flush(pending, report);
+            System.out.println("Product import: " + report.getInserted() + " inserted, " + report.getUpdated()
+                    + " updated, " + report.getFailed() + " failed");
+        } finally {
+            if (report.getInserted() + report.getUpdated() > 0) {
+                cacheInvalidator.clearAll();
+                searchIndex.rebuild();
+            }
+        }
+        return report;
+    }
+
+    private void readCsv(BufferedReader reader, int batch, List<ImportRow> pending, ProductImportResponse report) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        List<String> record;
+        while ((record = nextRecord(csv, report)) != null) {
+            ImportRow row = new ImportRow(csv.recordLine());
+            try {
+                row.id = column(record, columns, "id");
+                row.name = column(record, columns, "name");
+                row.description = column(record, columns, "description");
+                row.category = column(record, columns, "category");
+                row.imageUrl = column(record, columns, "imageUrl");
+                row.price = parseDouble(column(record, columns, "price"), "price");
+                row.stock = parseInt(column(record, columns, "stock"), "stock");
+            } catch (BadRequestException e) {
+                reject(report, row.line, e.getMessage());
+                continue;
+            }
+            accept(row, batch, pending, report);
+        }
+    }
+
+    /**
+     * An unterminated quote swallows the rest of the input, so it ends the import as a row error.
+     */
+    private static List<String> nextRecord(CsvReader csv, ProductImportResponse report) throws IOException {
+        try {
+            return csv.next();
+        } catch (CsvFormatException e) {
+            reject(report, e.getLine(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, int batch, List<ImportRow> pending, ProductImportResponse report) throws IOException {
+        String line;
+        long lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) {
+                continue;
+            }
+            ImportRow row = new ImportRow(lineNo);
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                row.id = text(node, "id");
+                row.name = text(node, "name");
+                row.description = text(node, "description");
+                row.category = text(node, "category");
+                row.imageUrl = text(node, "imageUrl");
+                row.price = parseDouble(text(node, "price"), "price");
+                row.stock = parseInt(text(node, "stock"), "stock");
+            } catch (JsonProcessingException e) {
+                reject(report, lineNo, "Malformed JSON");
+                continue;
+            } catch (BadRequestException e) {
+                reject(report, lineNo, e.getMessage());
+                continue;
+            }
+            accept(row, batch, pending, report);
+        }
+    }
+
+    private void accept(ImportRow row, int batch, List<ImportRow> pending, ProductImportResponse report) {
+        String error = validate(row);
+        if (error != null) {
+            reject(report, row.line, error);
+            return;
+        }
+        report.setProcessed(report.getProcessed() + 1);
+        pending.add(row);
+        if (pending.size() >= batch) {
+            flush(pending, report);
+        }
+    }
+
+    private void flush(List<ImportRow> pending, ProductImportResponse report) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, String> currentImages = currentImages(pending);
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        for (ImportRow row : pending) {
+            // take the image reference before the write, so a crash can only leak one, never drop one
+            row.imageRetained = row.imageUrl != null && fileStorageService.retain(row.imageUrl);
+            if (row.id != null) {
+                ops.upsert(Query.query(Criteria.where("_id").is(row.id)), toUpdate(row));
+            } else {
+                ops.insert(toProduct(row));
+            }
+        }
+        Set<Integer> failed = new HashSet<>();
+        try {
+            record(ops.execute(), report);
+        } catch (BulkOperationException e) {
+            record(e.getResult(), report);
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(error.getIndex());
+                reject(report, pending.get(error.getIndex()).line, error.getMessage());
+            }
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            ImportRow row = pending.get(i);
+            if (!row.imageRetained) {
+                continue;
+            }
+            if (failed.contains(i)) {
+                releaseImage(row.imageUrl);
+            } else if (row.id != null) {
+                // rows are applied in order, so a later row for the same id replaces this one's image
+                String previous = currentImages.put(row.id, row.imageUrl);
+                releaseImage(row.imageUrl.equals(previous) ? row.imageUrl : previous);
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * Image URLs currently stored on the batch's existing products that the batch may replace.
+     */
+    private Map<String, String> currentImages(List<ImportRow> pending) {
+        List<String> ids = pending.stream().filter(r -> r.id != null && r.imageUrl != null).map(r -> r.id).distinct().toList();
+        Map<String, String> images = new HashMap<>();
+        if (ids.isEmpty()) {
+            return images;
+        }
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include("imageUrl");
+        for (Product product : mongoTemplate.find(query, Product.class)) {
+            images.put(product.getId(), product.getImageUrl());
+        }
+        return images;
+    }
+
+    private void releaseImage(String imageUrl) {
+        if (imageUrl == null) {
+            return;
+        }
+        try {
+            fileStorageService.release(imageUrl);
+        } catch (IOException e) {
+            System.err.println("Failed to release image " + imageUrl + ": " + e.getMessage());
+        }
+    }
+
+    private static void record(BulkWriteResult result, ProductImportResponse report) {
+        report.setInserted(report.getInserted() + result.getInsertedCount() + result.getUpserts().size());
+        report.setUpdated(report.getUpdated() + result.getModifiedCount());
+    }
+
+    private static void reject(ProductImportResponse report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new ProductImportResponse.RowError(line, message));
+        }
+    }
+
+    /**
+     * Same rules as the constraints on ProductRequest.
+     */
+    private static String validate(ImportRow row) {
+        if (row.name == null || row.name.isBlank()) {
+            return "name must not be blank";
+        }
+        if (row.description == null || row.description.isBlank()) {
+            return "description must not be blank";
+        }
+        if (row.price == null || !Double.isFinite(row.price) || row.price < 1) {
+            return "price must be at least 1";
+        }
+        if (row.stock == null || row.stock < 0) {
+            return "stock must be at least 0";
+        }
+        return null;
+    }
+
+    private static Update toUpdate(ImportRow row) {
+        Instant now = Instant.now();
+        Update update = new Update()
+                .set("name", row.name)
+                .set("description", row.description)
+                .set("price", row.price)
+                .set("category", row.category)
+                .set("updatedAt", now)
+                .setOnInsert("stock", row.stock)
+                .setOnInsert("createdAt", now)
+                .inc("version", 1);
+        if (row.imageUrl != null) {
+            update.set("imageUrl", row.imageUrl);
+        }
+        return update;
+    }
+
+    private static Product toProduct(ImportRow row) {
+        Product product = new Product();
+        product.setName(row.name);
+        product.setDescription(row.description);
+        product.setPrice(row.price);
+        product.setStock(row.stock);
+        product.setCategory(row.category);
+        product.setImageUrl(row.imageUrl);
+        product.setVersion(1);
+        Instant now = Instant.now();
+        product.setCreatedAt(now);
+        product.setUpdatedAt(now);
+        return product;
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer i = columns.get(name);
+        if (i == null || i >= record.size()) {
+            return null;
+        }
+        String value = record.get(i).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static Double parseDouble(String value, String field) {
+        try {
+            return value != null ? Double.parseDouble(value) : null;
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid " + field + ": " + value);
+        }
+    }
+
+    private static Integer parseInt(String value, String field) {
+        try {
+            return value != null ? Integer.parseInt(value) : null;
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid " + field + ": " + value);
+        }
+    }
+
+    private static final class ImportRow {
+        final long line;
+        String id;
+        String name;
+        String description;
+        String category;
+        String imageUrl;
+        Double price;
+        Integer stock;
+        boolean imageRetained;
+
+        ImportRow(long line) {
+            this.line = line;
+        }
+    }
+}
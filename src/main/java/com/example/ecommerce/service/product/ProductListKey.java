@@ -0,0 +1,18 @@
+package com.example.ecommerce.service.product;
+
+/**
+ * Cache key for product-list and product-summary-list entries: the page
+ * window, the view and the structured filter.
+ */
+public record ProductListKey(int page, int size, String sort, ProductFilter filter, boolean summary) {
+
+    public static ProductListKey of(int page, int size, String sort, String category,
+                                    Double minPrice, Double maxPrice, Boolean available) {
+        return new ProductListKey(page, size, sort, ProductFilter.of(category, minPrice, maxPrice, available), false);
+    }
+
+    public static ProductListKey summaryOf(int page, int size, String sort, String category,
+                                           Double minPrice, Double maxPrice, Boolean available) {
+        return new ProductListKey(page, size, sort, ProductFilter.of(category, minPrice, maxPrice, available), true);
+    }
+}
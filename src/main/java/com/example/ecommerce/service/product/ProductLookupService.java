@@ -0,0 +1,82 @@
+package com.example.ecommerce.service.product;
+
+import com.example.ecommerce.exception.custom.ResourceNotFoundException;
+import com.example.ecommerce.model.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads products for cart and order flows in bulk. Products fetched during an
+ * HTTP request are memoized on the request, so the same product is read from
+ * Mongo at most once per request. The memo is not refreshed by stock writes, so
+ * callers read what they need before writing.
+ */
+@Service
+public class ProductLookupService {
+
+    private static final String MEMO_ATTRIBUTE = ProductLookupService.class.getName() + ".MEMO";
+
+    private final ProductRepository productRepository;
+
+    public ProductLookupService(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    public Product getById(String id) {
+        Product product = findAllById(Set.of(id)).get(id);
+        if (product == null) {
+            throw new ResourceNotFoundException("Product not found");
+        }
+        return product;
+    }
+
+    /**
+     * Returns the products for the given ids keyed by id; unknown ids are absent
+     * from the result. Ids not yet seen in this request are loaded with a single query.
+     */
+    public Map<String, Product> findAllById(Collection<String> ids) {
+        Map<String, Product> memo = memo();
+        Set<String> missing = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (!memo.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Product p : productRepository.findAllById(missing)) {
+                memo.put(p.getId(), p);
+            }
+        }
+        Map<String, Product> result = new HashMap<>();
+        for (String id : ids) {
+            Product p = memo.get(id);
+            if (p != null) {
+                result.put(id, p);
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Product> memo() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return new HashMap<>();
+        }
+        Object existing = attributes.getAttribute(MEMO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (existing != null) {
+            return (Map<String, Product>) existing;
+        }
+        Map<String, Product> memo = new HashMap<>();
+        attributes.setAttribute(MEMO_ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+        return memo;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.ecommerce.service.product;
+
+import com.example.ecommerce.exception.custom.BadRequestException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Builds product list queries whose predicates all run on the server and line
+ * up with the compound indexes declared on {@link com.example.ecommerce.model.Product}:
+ * category equality (or an anchored prefix when the value ends with '*'),
+ * then sort field, then price/stock ranges.
+ */
+public class ProductQueryBuilder {
+
+    private final List<Criteria> criteria = new ArrayList<>();
+    private Sort sort = Sort.unsorted();
+    private String sortField;
+    private Sort.Direction direction = Sort.Direction.DESC;
+
+    public ProductQueryBuilder filter(ProductFilter filter) {
+        return category(filter.category())
+                .price(filter.minPrice(), filter.maxPrice())
+                .available(filter.available());
+    }
+
+    public ProductQueryBuilder category(String category) {
+        if (category == null || category.isBlank()) {
+            return this;
+        }
+        if (category.endsWith("*")) {
+            String prefix = category.substring(0, category.length() - 1);
+            if (!prefix.isEmpty()) {
+                criteria.add(Criteria.where("category").regex("^" + Pattern.quote(prefix)));
+            }
+        } else {
+            criteria.add(Criteria.where("category").is(category));
+        }
+        return this;
+    }
+
+    public ProductQueryBuilder price(Double minPrice, Double maxPrice) {
+        if (minPrice != null && maxPrice != null) {
+            criteria.add(Criteria.where("price").gte(minPrice).lte(maxPrice));
+        } else if (minPrice != null) {
+            criteria.add(Criteria.where("price").gte(minPrice));
+        } else if (maxPrice != null) {
+            criteria.add(Criteria.where("price").lte(maxPrice));
+        }
+        return this;
+    }
+
+    public ProductQueryBuilder available(Boolean available) {
+        if (available != null) {
+            criteria.add(available ? Criteria.where("stock").gt(0) : Criteria.where("stock").lte(0));
+        }
+        return this;
+    }
+
+    /**
+     * Accepts "field" or "field,asc|desc". _id is appended as a tie-breaker so
+     * the order is total and keyset cursors are stable.
+     */
+    public ProductQueryBuilder sort(String sortParam) {
+        String[] sortParts = sortParam.split(",");
+        if (!ProductCursor.SORT_FIELDS.contains(sortParts[0])) {
+            throw new BadRequestException("Unsupported sort field: " + sortParts[0]);
+        }
+        sortField = sortParts[0];
+        direction = sortParts.length > 1 && sortParts[1].equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        sort = Sort.by(direction, sortField).and(Sort.by(direction, "_id"));
+        return this;
+    }
+
+    public ProductQueryBuilder after(String cursor) {
+        if (cursor != null && !cursor.isBlank()) {
+            criteria.add(ProductCursor.decode(cursor, sortField).toCriteria(direction));
+        }
+        return this;
+    }
+
+    public String sortField() {
+        return sortField;
+    }
+
+    public Criteria criteria() {
+        return criteria.isEmpty() ? new Criteria() : new Criteria().andOperator(criteria);
+    }
+
+    public Query build() {
+        return new Query(criteria()).with(sort);
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.ecommerce.service.product;
+
+import com.example.ecommerce.model.Product;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over product name, category and description,
+ * ranked with BM25. Postings are parallel int arrays sorted by internal doc
+ * number; a product update re-indexes it under a fresh doc number and the
+ * index is compacted once dead slots outnumber live ones. A rebuild fills a
+ * new segment off-lock and swaps it in.
+ */
+@Component
+public class ProductSearchIndex {
+
+    public static final int MAX_RESULTS = 1000;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int NAME_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "the", "of", "for", "with", "in", "on", "to", "is", "by", "or", "at");
+
+    private final MongoTemplate mongoTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildLock = new Object();
+
+    private Segment segment = new Segment();
+    private Map<String, Product> changedDuringRebuild; // product id -> latest version, null value for a delete
+
+    public ProductSearchIndex(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Builds a fresh segment from the products collection without holding the lock, so searches keep
+     * using the old one meanwhile. Writes that arrive during the build are replayed onto the new
+     * segment before it is swapped in.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = new LinkedHashMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Segment fresh = new Segment();
+            Query query = new Query();
+            query.fields().include("name", "description", "category");
+            try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+                products.forEach(fresh::add);
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    changedDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+            int size;
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild.forEach((productId, product) -> {
+                    fresh.remove(productId);
+                    if (product != null) {
+                        fresh.add(product);
+                    }
+                });
+                changedDuringRebuild = null;
+                segment = fresh;
+                size = fresh.liveDocs;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            System.out.println("Product search index built with " + size + " products");
+        }
+    }
+
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            segment.remove(product.getId());
+            segment.add(product);
+            if (segment.docCount > 2 * segment.liveDocs + 1024) {
+                segment.compact();
+            }
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(product.getId(), product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(String productId) {
+        lock.writeLock().lock();
+        try {
+            segment.remove(productId);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(productId, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns product ids ordered by descending BM25 score, skipping {@code offset} hits. Only the first
+     * {@link #MAX_RESULTS} hits are reachable; the ranking heap never holds more than that.
+     */
+    public List<String> search(String text, int offset, int limit) {
+        Map<String, Integer> queryTerms = tokenize(text, 1);
+        if (queryTerms.isEmpty() || limit <= 0 || offset < 0 || offset >= MAX_RESULTS) {
+            return List.of();
+        }
+        int k = (int) Math.min((long) offset + limit, MAX_RESULTS);
+        lock.readLock().lock();
+        try {
+            return segment.search(queryTerms, offset, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One complete index. Guarded by the outer lock once it is published.
+     */
+    private static final class Segment {
+        private final Map<String, Integer> termIds = new HashMap<>();
+        private final List<PostingList> postings = new ArrayList<>();
+        private final Map<String, Integer> docByProduct = new HashMap<>();
+        private String[] productIds = new String[1024];
+        private int[] docLengths = new int[1024];
+        private int[][] docTerms = new int[1024][];
+        private int docCount;
+        private int liveDocs;
+        private long totalLength;
+
+        List<String> search(Map<String, Integer> queryTerms, int offset, int k) {
+            if (liveDocs == 0) {
+                return List.of();
+            }
+            float avgLength = (float) totalLength / liveDocs;
+            float[] scores = new float[docCount];
+            int[] touched = new int[16];
+            int touchedCount = 0;
+            for (String term : queryTerms.keySet()) {
+                Integer termId = termIds.get(term);
+                if (termId == null) {
+                    continue;
+                }
+                PostingList pl = postings.get(termId);
+                float idf = (float) Math.log(1 + (liveDocs - pl.size + 0.5) / (pl.size + 0.5));
+                for (int i = 0; i < pl.size; i++) {
+                    int doc = pl.docs[i];
+                    int tf = pl.freqs[i];
+                    float norm = K1 * (1 - B + B * docLengths[doc] / avgLength);
+                    if (scores[doc] == 0f) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = doc;
+                    }
+                    scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+            PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> Float.compare(scores[a], scores[b]));
+            for (int i = 0; i < touchedCount; i++) {
+                top.offer(touched[i]);
+                if (top.size() > k) {
+                    top.poll();
+                }
+            }
+            String[] ranked = new String[top.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = productIds[top.poll()];
+            }
+            if (offset >= ranked.length) {
+                return List.of();
+            }
+            return Arrays.asList(ranked).subList(offset, ranked.length);
+        }
+
+        void add(Product product) {
+            Map<String, Integer> terms = tokenize(product.getName(), NAME_WEIGHT);
+            mergeInto(terms, tokenize(product.getCategory(), CATEGORY_WEIGHT));
+            mergeInto(terms, tokenize(product.getDescription(), DESCRIPTION_WEIGHT));
+
+            int doc = docCount++;
+            ensureDocCapacity(docCount);
+            int length = 0;
+            int[] ids = new int[terms.size()];
+            int n = 0;
+            for (Map.Entry<String, Integer> e : terms.entrySet()) {
+                int termId = termIds.computeIfAbsent(e.getKey(), t -> {
+                    postings.add(new PostingList());
+                    return postings.size() - 1;
+                });
+                postings.get(termId).append(doc, e.getValue());
+                ids[n++] = termId;
+                length += e.getValue();
+            }
+            productIds[doc] = product.getId();
+            docLengths[doc] = length;
+            docTerms[doc] = ids;
+            docByProduct.put(product.getId(), doc);
+            liveDocs++;
+            totalLength += length;
+        }
+
+        void remove(String productId) {
+            Integer doc = docByProduct.remove(productId);
+            if (doc == null) {
+                return;
+            }
+            for (int termId : docTerms[doc]) {
+                postings.get(termId).remove(doc);
+            }
+            totalLength -= docLengths[doc];
+            liveDocs--;
+            productIds[doc] = null;
+            docTerms[doc] = null;
+            docLengths[doc] = 0;
+        }
+
+        /**
+         * Renumbers live docs densely. The mapping is monotonic, so posting lists stay sorted.
+         */
+        void compact() {
+            int[] remap = new int[docCount];
+            int next = 0;
+            for (int doc = 0; doc < docCount; doc++) {
+                if (productIds[doc] != null) {
+                    remap[doc] = next;
+                    productIds[next] = productIds[doc];
+                    docLengths[next] = docLengths[doc];
+                    docTerms[next] = docTerms[doc];
+                    docByProduct.put(productIds[next], next);
+                    next++;
+                }
+            }
+            Arrays.fill(productIds, next, docCount, null);
+            Arrays.fill(docTerms, next, docCount, null);
+            for (PostingList pl : postings) {
+                for (int i = 0; i < pl.size; i++) {
+                    pl.docs[i] = remap[pl.docs[i]];
+                }
+            }
+            docCount = next;
+        }
+
+        private void ensureDocCapacity(int capacity) {
+            if (capacity > productIds.length) {
+                int newLength = Math.max(capacity, productIds.length * 2);
+                productIds = Arrays.copyOf(productIds, newLength);
+                docLengths = Arrays.copyOf(docLengths, newLength);
+                docTerms = Arrays.copyOf(docTerms, newLength);
+            }
+        }
+    }
+
+    private static void mergeInto(Map<String, Integer> target, Map<String, Integer> source) {
+        source.forEach((term, freq) -> target.merge(term, freq, Integer::sum));
+    }
+
+    static Map<String, Integer> tokenize(String text, int weight) {
+        Map<String, Integer> terms = new LinkedHashMap<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                terms.merge(token, weight, Integer::sum);
+            }
+        }
+        return terms;
+    }
+
+    private static final class PostingList {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+
+        void append(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+
+        void remove(int doc) {
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            if (i >= 0) {
+                System.arraycopy(docs, i + 1, docs, i, size - i - 1);
+                System.arraycopy(freqs, i + 1, freqs, i, size - i - 1);
+                size--;
+            }
+        }
+    }
+}
@@ -2,88 +2,222 @@ package com.example.ecommerce.service.product;
 
 import com.example.ecommerce.dto.mapper.ProductMapper;
 import com.example.ecommerce.dto.request.product.ProductRequest;
+import com.example.ecommerce.dto.response.product.ProductFacetsResponse;
 import com.example.ecommerce.dto.response.product.ProductResponse;
+import com.example.ecommerce.dto.response.product.ProductSliceResponse;
+import com.example.ecommerce.dto.response.product.ProductSummaryResponse;
+import com.example.ecommerce.exception.custom.BadRequestException;
 import com.example.ecommerce.exception.custom.ResourceNotFoundException;
 import com.example.ecommerce.model.Product;
 import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.service.media.ChunkedUploadService;
 import com.example.ecommerce.util.storage.FileStorageService;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class ProductService {
 
+    private static final int UPDATE_ATTEMPTS = 3;
+
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
     private final FileStorageService fileStorageService;
+    private final MongoTemplate mongoTemplate;
+    private final ProductSearchIndex searchIndex;
+    private final ProductCacheInvalidator cacheInvalidator;
+    private final ProductCacheLoader cacheLoader;
+    private final ChunkedUploadService chunkedUploadService;
 
     public ProductService(ProductRepository productRepository,
                           ProductMapper productMapper,
-                          FileStorageService fileStorageService) {
+                          FileStorageService fileStorageService,
+                          MongoTemplate mongoTemplate,
+                          ProductSearchIndex searchIndex,
+                          ProductCacheInvalidator cacheInvalidator,
+                          ProductCacheLoader cacheLoader,
+                          ChunkedUploadService chunkedUploadService) {
         this.productRepository = productRepository;
         this.productMapper = productMapper;
         this.fileStorageService = fileStorageService;
+        this.mongoTemplate = mongoTemplate;
+        this.searchIndex = searchIndex;
+        this.cacheInvalidator = cacheInvalidator;
+        this.cacheLoader = cacheLoader;
+        this.chunkedUploadService = chunkedUploadService;
     }
 
     @Transactional
-    @CacheEvict(value = {"product-list"}, allEntries = true)
     public ProductResponse create(ProductRequest request) {
         String imageUrl = uploadIfPresent(request);
-        Product product = productMapper.toEntity(request, imageUrl);
-        return productMapper.toResponse(productRepository.save(product));
+        Product product = productRepository.save(productMapper.toEntity(request, imageUrl));
+        searchIndex.index(product);
+        cacheInvalidator.productChanged(null, product);
+        return productMapper.toResponse(product);
     }
 
+    /**
+     * Applies an admin edit as one targeted update. Only the edited fields are set, so stock
+     * markers written by InventoryService survive. Stock is applied as the difference from the
+     * value that was read, guarded on its version, so checkouts running meanwhile are not undone.
+     */
     @Transactional
-    @CacheEvict(value = {"product-by-id", "product-list"}, allEntries = true)
+    @CacheEvict(value = "product-by-id", key = "#id")
     public ProductResponse update(String id, ProductRequest request) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
         String imageUrl = uploadIfPresent(request);
-        productMapper.updateEntity(product, request, imageUrl);
-        return productMapper.toResponse(productRepository.save(product));
+        Product updated;
+        for (int attempt = 1; ; attempt++) {
+            updated = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(id).and("version").is(product.getVersion())),
+                    toUpdate(request, imageUrl, product.getStock()),
+                    FindAndModifyOptions.options().returnNew(true),
+                    Product.class);
+            if (updated != null) {
+                break;
+            }
+            // stock or another edit moved the version since the read; retry against fresh values
+            Product current = productRepository.findById(id).orElse(null);
+            if (current == null || attempt == UPDATE_ATTEMPTS) {
+                releaseImage(imageUrl);
+                if (current == null) {
+                    throw new ResourceNotFoundException("Product not found");
+                }
+                throw new BadRequestException("Product is changing too often right now, please retry");
+            }
+            product = current;
+        }
+        searchIndex.index(updated);
+        cacheInvalidator.productChanged(ProductCacheInvalidator.snapshot(product), updated);
+        if (imageUrl != null) {
+            releaseImage(product.getImageUrl());
+        }
+        return productMapper.toResponse(updated);
     }
 
     @Transactional
-    @CacheEvict(value = {"product-by-id", "product-list"}, allEntries = true)
+    @CacheEvict(value = "product-by-id", key = "#id")
     public void delete(String id) {
-        if (!productRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Product not found");
-        }
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
         productRepository.deleteById(id);
+        searchIndex.delete(id);
+        cacheInvalidator.productChanged(ProductCacheInvalidator.snapshot(product), null);
+        releaseImage(product.getImageUrl());
     }
 
-    @Cacheable(value = "product-by-id", key = "#id")
+    @Cacheable(value = "product-by-id", key = "#id", sync = true)
     public ProductResponse getById(String id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-        return productMapper.toResponse(product);
+        return cacheLoader.loadById(id);
     }
 
-    @Cacheable(value = "product-list", key = "#page + '-' + #size + '-' + #sort + '-' + #category + '-' + #minPrice + '-' + #maxPrice + '-' + #available")
+    @Cacheable(value = "product-list", key = "T(com.example.ecommerce.service.product.ProductListKey).of(#page, #size, #sort, #category, #minPrice, #maxPrice, #available)", sync = true)
     public List<ProductResponse> list(int page, int size, String sort, String category, Double minPrice, Double maxPrice, Boolean available) {
-        String[] sortParts = sort.split(",");
-        Sort.Direction dir = sortParts.length > 1 && sortParts[1].equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        PageRequest pageable = PageRequest.of(page, size, Sort.by(dir, sortParts[0]));
-        double min = minPrice != null ? minPrice : 0;
-        double max = maxPrice != null ? maxPrice : Double.MAX_VALUE;
-        String cat = category != null ? category : "";
-        // Simplified filter: category contains and price range
-        return productRepository.findByCategoryContainingIgnoreCaseAndPriceBetween(cat, min, max, pageable)
-                .stream()
-                .filter(p -> available == null || (available ? p.getStock() > 0 : p.getStock() == 0))
+        return cacheLoader.loadList(ProductListKey.of(page, size, sort, category, minPrice, maxPrice, available));
+    }
+
+    @Cacheable(value = "product-summary-list", key = "T(com.example.ecommerce.service.product.ProductListKey).summaryOf(#page, #size, #sort, #category, #minPrice, #maxPrice, #available)", sync = true)
+    public List<ProductSummaryResponse> listSummaries(int page, int size, String sort, String category, Double minPrice, Double maxPrice, Boolean available) {
+        return cacheLoader.loadSummaries(ProductListKey.summaryOf(page, size, sort, category, minPrice, maxPrice, available));
+    }
+
+    @Cacheable(value = "product-facets", key = "T(com.example.ecommerce.service.product.ProductFilter).of(#category, #minPrice, #maxPrice, #available)", sync = true)
+    public ProductFacetsResponse facets(String category, Double minPrice, Double maxPrice, Boolean available) {
+        return cacheLoader.loadFacets(ProductFilter.of(category, minPrice, maxPrice, available));
+    }
+
+    /**
+     * Keyset listing: fetches size + 1 documents after the cursor, ordered by the
+     * sort field and _id, so every page costs the same and no count query runs.
+     */
+    public ProductSliceResponse scroll(String cursor, int size, String sort, String category, Double minPrice, Double maxPrice, Boolean available) {
+        ProductQueryBuilder builder = new ProductQueryBuilder()
+                .category(category)
+                .price(minPrice, maxPrice)
+                .available(available)
+                .sort(sort)
+                .after(cursor);
+        Query query = builder.build().limit(size + 1);
+        query.fields().exclude(InventoryService.HELD_BY);
+        List<Product> products = mongoTemplate.find(query, Product.class);
+
+        boolean hasNext = products.size() > size;
+        if (hasNext) {
+            products = products.subList(0, size);
+        }
+        ProductSliceResponse resp = new ProductSliceResponse();
+        resp.setItems(products.stream().map(productMapper::toResponse).toList());
+        resp.setHasNext(hasNext);
+        resp.setNextCursor(hasNext ? ProductCursor.after(products.get(products.size() - 1), builder.sortField()).encode() : null);
+        return resp;
+    }
+
+    public List<ProductResponse> search(String q, int page, int size) {
+        List<String> ids = searchIndex.search(q, page * size, size);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Product> byId = new HashMap<>();
+        productRepository.findAllById(ids).forEach(p -> byId.put(p.getId(), p));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
                 .map(productMapper::toResponse)
                 .toList();
     }
 
+    private static Update toUpdate(ProductRequest request, String imageUrl, int stockRead) {
+        Update update = new Update()
+                .set("name", request.getName())
+                .set("description", request.getDescription())
+                .set("price", request.getPrice())
+                .set("category", request.getCategory())
+                .set("updatedAt", Instant.now())
+                .inc("version", 1);
+        if (request.getStock() != stockRead) {
+            update.inc("stock", request.getStock() - stockRead);
+        }
+        if (imageUrl != null) {
+            update.set("imageUrl", imageUrl);
+        }
+        return update;
+    }
+
+    private void releaseImage(String imageUrl) {
+        if (imageUrl == null) {
+            return;
+        }
+        try {
+            fileStorageService.release(imageUrl);
+        } catch (IOException e) {
+            System.err.println("Failed to release image " + imageUrl + ": " + e.getMessage());
+        }
+    }
+
     private String uploadIfPresent(ProductRequest request) {
-        if (request.getImage() != null && !request.getImage().isEmpty()) {
+        boolean hasImage = request.getImage() != null && !request.getImage().isEmpty();
+        if (request.getImageUploadId() != null && !request.getImageUploadId().isBlank()) {
+            if (hasImage) {
+                throw new BadRequestException("Send either image or imageUploadId, not both");
+            }
+            return chunkedUploadService.attach(request.getImageUploadId());
+        }
+        if (hasImage) {
             try {
                 return fileStorageService.store(request.getImage());
             } catch (IOException e) {
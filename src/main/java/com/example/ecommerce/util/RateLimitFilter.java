@@ -1,74 +1,161 @@
 package com.example.ecommerce.util;
 
+import com.example.ecommerce.service.auth.JwtService;
+import com.example.ecommerce.util.ratelimit.DistributedRateLimiter;
+import com.example.ecommerce.util.ratelimit.RateLimitPolicy;
+import com.example.ecommerce.util.ratelimit.RateLimitPolicyRegistry;
+import com.example.ecommerce.util.ratelimit.TokenBucket;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
 
 import java.io.IOException;
-import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Applies the configured {@link RateLimitPolicy} for each request, using one
+ * token bucket per policy and client key (IP, user id or API key). Buckets are
+ * keyed by policy rather than raw URI, so scanning ids does not create new
+ * buckets. They live in a Caffeine cache bounded by size, and each entry is
+ * dropped after one idle period, when it would have refilled anyway. With
+ * app.rate-limit.distributed=true the limits are shared across instances by
+ * {@link DistributedRateLimiter} instead.
+ */
 @Component
 public class RateLimitFilter extends OncePerRequestFilter {
 
-    private static final int LOGIN_LIMIT = 10; // per minute
-    private static final int ORDER_LIMIT = 5;  // per minute
-    private static final long WINDOW_MILLIS = 60_000;
+    private static final String API_KEY_HEADER = "X-API-Key";
+    private static final int MAX_KEY_LENGTH = 128;
+    private static final UrlPathHelper PATH_HELPER = new UrlPathHelper();
 
-    private final Map<String, WindowCounter> counters = new ConcurrentHashMap<>();
+    private final RateLimitPolicyRegistry policies;
+    private final JwtService jwtService;
+    private final DistributedRateLimiter distributedLimiter;
+    private final boolean distributed;
+    private final Set<String> apiKeyHashes = new HashSet<>();
+    private final Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfter(new IdleForOnePeriod())
+            .build();
+
+    public RateLimitFilter(RateLimitPolicyRegistry policies,
+                           JwtService jwtService,
+                           DistributedRateLimiter distributedLimiter,
+                           @Value("${app.rate-limit.distributed:false}") boolean distributed,
+                           @Value("${app.rate-limit.api-keys:}") String[] apiKeys) {
+        this.policies = policies;
+        this.jwtService = jwtService;
+        this.distributedLimiter = distributedLimiter;
+        this.distributed = distributed;
+        for (String apiKey : apiKeys) {
+            if (!apiKey.isBlank()) {
+                apiKeyHashes.add(sha256(apiKey.trim()));
+            }
+        }
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        String path = request.getRequestURI();
-        if (path.startsWith("/api/auth/login")) {
-            if (isRateLimited(key(request), LOGIN_LIMIT)) {
-                reject(response, "Too many login attempts");
-                return;
-            }
-        } else if (path.startsWith("/api/orders")) {
-            if (isRateLimited(key(request), ORDER_LIMIT)) {
-                reject(response, "Too many order requests");
+        // match what the handler mapping will route on: decoded, without ;params, with // collapsed
+        String path = PATH_HELPER.getPathWithinApplication(request);
+        RateLimitPolicy policy = policies.match(request.getMethod(), path);
+        if (policy != null) {
+            long retryAfter = tryConsume(policy, clientKey(policy, request));
+            if (retryAfter > 0) {
+                reject(response, "Too many requests, please retry later", retryAfter);
                 return;
             }
         }
         filterChain.doFilter(request, response);
     }
 
-    private String key(HttpServletRequest request) {
-        return request.getRemoteAddr() + ":" + request.getRequestURI();
+    /**
+     * Runs before authentication, so the user id comes from the bearer token (verified once and cached by
+     * JwtService). Requests without a usable user id or a key listed in app.rate-limit.api-keys are keyed by IP.
+     */
+    private String clientKey(RateLimitPolicy policy, HttpServletRequest request) {
+        if (policy.key() == RateLimitPolicy.KeyType.USER) {
+            String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                try {
+                    String userId = jwtService.verify(authHeader.substring(7)).userId();
+                    if (userId != null) {
+                        return "user:" + userId;
+                    }
+                } catch (JwtException | IllegalArgumentException ignored) {
+                    // fall back to the IP; the request will fail authentication anyway
+                }
+            }
+        } else if (policy.key() == RateLimitPolicy.KeyType.API_KEY) {
+            // only configured keys get their own bucket; rotating made-up keys must not mint fresh ones
+            String apiKey = request.getHeader(API_KEY_HEADER);
+            if (apiKey != null && !apiKey.isBlank() && apiKey.length() <= MAX_KEY_LENGTH) {
+                String hash = sha256(apiKey.trim());
+                if (apiKeyHashes.contains(hash)) {
+                    return "key:" + hash;
+                }
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
     }
 
-    private boolean isRateLimited(String key, int limit) {
-        long now = Instant.now().toEpochMilli();
-        WindowCounter counter = counters.computeIfAbsent(key, k -> new WindowCounter(now));
-        synchronized (counter) {
-            if (now - counter.windowStart >= WINDOW_MILLIS) {
-                counter.windowStart = now;
-                counter.count.set(0);
-            }
-            int current = counter.count.incrementAndGet();
-            return current > limit;
+    private long tryConsume(RateLimitPolicy policy, String clientKey) {
+        long now = System.currentTimeMillis();
+        if (distributed) {
+            return distributedLimiter.tryAcquire(policy, clientKey, now);
         }
+        // the generation changes on reload, so edited limits start from fresh buckets
+        String key = policies.generation() + "|" + policy.name() + "|" + clientKey;
+        return buckets.get(key, k -> new TokenBucket(policy.limit(), policy.period().toMillis(), now)).tryConsume(now);
     }
 
-    private void reject(HttpServletResponse response, String message) throws IOException {
+    private void reject(HttpServletResponse response, String message, long retryAfterMillis) throws IOException {
         response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfterMillis + 999) / 1000));
         response.setContentType("application/json");
         response.getWriter().write("{\"error\":\"RATE_LIMIT\",\"message\":\"" + message + "\"}");
     }
 
-    private static class WindowCounter {
-        long windowStart;
-        AtomicInteger count = new AtomicInteger();
-        WindowCounter(long windowStart) {
-            this.windowStart = windowStart;
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
-}
 
+    private static final class IdleForOnePeriod implements Expiry<String, TokenBucket> {
+        @Override
+        public long expireAfterCreate(String key, TokenBucket bucket, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(bucket.periodMillis());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, TokenBucket bucket, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, bucket, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, TokenBucket bucket, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, bucket, currentTime);
+        }
+    }
+}
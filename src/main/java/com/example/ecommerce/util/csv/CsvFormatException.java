@@ -0,0 +1,22 @@
+package com.example.ecommerce.util.csv;
+
+import java.io.IOException;
+
+/**
+ * Malformed CSV input, as opposed to a failure reading the underlying stream.
+ */
+public class CsvFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long line;
+
+    public CsvFormatException(String message, long line) {
+        super(message);
+        this.line = line;
+    }
+
+    public long getLine() {
+        return line;
+    }
+}
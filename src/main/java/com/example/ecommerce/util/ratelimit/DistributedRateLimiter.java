@@ -0,0 +1,194 @@
+package com.example.ecommerce.util.ratelimit;
+
+import com.example.ecommerce.model.RateLimitWindow;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limits shared by every instance, using fixed windows counted in the
+ * rate_limit_windows collection. Requests never wait on Mongo. Each node grants
+ * from a local allowance: its share of what the cluster has left in the window,
+ * as of the last sync. A scheduled sync pushes the locally granted counts with
+ * one unordered bulk of $inc upserts and reads the totals back. The overshoot
+ * is bounded by roughly one sync interval of traffic. Window documents carry a
+ * TTL, so Mongo removes them once the window has passed.
+ */
+@Component
+public class DistributedRateLimiter {
+
+    private static final int SYNC_BATCH = 500;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, WindowState> windows = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+    private volatile int clusterSize = 1; // most instances seen sharing one window recently
+
+    public DistributedRateLimiter(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * @return 0 if the request is allowed, otherwise the milliseconds until the current window ends
+     */
+    public long tryAcquire(RateLimitPolicy policy, String clientKey, long nowMillis) {
+        long period = policy.period().toMillis();
+        long windowStart = nowMillis - Math.floorMod(nowMillis, period);
+        String id = policy.name() + "|" + clientKey + "|" + windowStart;
+        WindowState state = windows.get(id, k -> new WindowState(id, policy.limit(), windowStart + period, clusterSize));
+        return state.tryGrant() ? 0 : Math.max(1, state.windowEnd - nowMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sync-interval-ms:1000}")
+    public void sync() {
+        long now = System.currentTimeMillis();
+        List<WindowState> active = new ArrayList<>();
+        for (WindowState state : windows.asMap().values()) {
+            if (state.windowEnd <= now) {
+                windows.invalidate(state.id);
+            } else if (state.dirty) {
+                active.add(state);
+            }
+        }
+        int largestCluster = 0;
+        for (int from = 0; from < active.size(); from += SYNC_BATCH) {
+            largestCluster = Math.max(largestCluster, syncBatch(active.subList(from, Math.min(from + SYNC_BATCH, active.size()))));
+        }
+        if (largestCluster > 0) {
+            clusterSize = largestCluster;
+        }
+    }
+
+    /**
+     * Pushes and reconciles one batch of windows.
+     *
+     * @return the most instances seen sharing any of these windows, or 0 if the sync failed
+     */
+    private int syncBatch(List<WindowState> batch) {
+        long[] flushed = new long[batch.size()];
+        boolean written = false;
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RateLimitWindow.class);
+            List<String> ids = new ArrayList<>(batch.size());
+            boolean anyFlushed = false;
+            for (int i = 0; i < batch.size(); i++) {
+                WindowState state = batch.get(i);
+                state.dirty = false;
+                flushed[i] = state.pending.getAndSet(0);
+                ids.add(state.id);
+                if (flushed[i] > 0) {
+                    anyFlushed = true;
+                    bulk.upsert(Query.query(Criteria.where("_id").is(state.id)),
+                            new Update().inc("count", flushed[i])
+                                    .addToSet("nodes", nodeId)
+                                    .setOnInsert("expiresAt", Instant.ofEpochMilli(state.windowEnd)));
+                }
+            }
+            if (anyFlushed) {
+                bulk.execute();
+            }
+            written = true;
+            Query query = Query.query(Criteria.where("_id").in(ids));
+            query.fields().include("count", "nodes");
+            int largestCluster = 1;
+            Map<String, RateLimitWindow> totals = new HashMap<>();
+            for (RateLimitWindow window : mongoTemplate.find(query, RateLimitWindow.class)) {
+                totals.put(window.getId(), window);
+                largestCluster = Math.max(largestCluster, window.getNodes().size());
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                WindowState state = batch.get(i);
+                RateLimitWindow window = totals.get(state.id);
+                if (window != null) {
+                    state.reconcile(window.getCount(), Math.max(1, window.getNodes().size()), flushed[i]);
+                }
+            }
+            return largestCluster;
+        } catch (RuntimeException e) {
+            // keep enforcing with local allowances; retry whatever was not written next time, and
+            // remember what was written so the next read-back takes it out of sinceSync
+            for (int i = 0; i < batch.size(); i++) {
+                if (written) {
+                    batch.get(i).unreconciled += flushed[i];
+                } else {
+                    batch.get(i).pending.addAndGet(flushed[i]);
+                }
+                batch.get(i).dirty = true;
+            }
+            System.err.println("Rate limit sync failed: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * This node's view of one window: the cluster total as of the last sync plus what it granted since.
+     */
+    private static final class WindowState {
+        final String id;
+        final int limit;
+        final long windowEnd;
+        final AtomicLong pending = new AtomicLong();          // granted here, not yet pushed
+        final AtomicLong sinceSync = new AtomicLong();        // granted here, not yet in globalCount
+        volatile long globalCount;
+        volatile int nodes;
+        volatile boolean dirty;
+        long unreconciled; // pushed, but the read-back failed; only touched by the sync thread
+
+        WindowState(String id, int limit, long windowEnd, int nodes) {
+            this.id = id;
+            this.limit = limit;
+            this.windowEnd = windowEnd;
+            this.nodes = nodes;
+        }
+
+        boolean tryGrant() {
+            long remaining = limit - globalCount;
+            if (remaining <= 0) {
+                return false;
+            }
+            long allowance = (remaining + nodes - 1) / nodes;
+            while (true) {
+                long granted = sinceSync.get();
+                if (granted >= allowance) {
+                    return false;
+                }
+                if (sinceSync.compareAndSet(granted, granted + 1)) {
+                    pending.incrementAndGet();
+                    dirty = true;
+                    return true;
+                }
+            }
+        }
+
+        void reconcile(long total, int nodeCount, long flushed) {
+            globalCount = total;
+            nodes = nodeCount;
+            sinceSync.addAndGet(-(flushed + unreconciled));
+            unreconciled = 0;
+            if (pending.get() > 0) {
+                dirty = true;
+            } else {
+                // keep polling while the window is live so this node sees other nodes' usage
+                dirty = total < limit;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.ecommerce.util.ratelimit;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rate-limit policies compiled into a trie of path segments. Matching walks the
+ * request path once: a literal segment wins over a {var} segment, and the
+ * deepest trailing ** seen on the way is the fallback. It costs one map lookup
+ * per segment regardless of how many policies exist.
+ */
+public final class PolicyTrie {
+
+    private static final String ANY_METHOD = "*";
+
+    private final Node root;
+
+    private PolicyTrie(Node root) {
+        this.root = root;
+    }
+
+    public static PolicyTrie compile(List<RateLimitPolicy> policies) {
+        Node root = new Node();
+        for (RateLimitPolicy policy : policies) {
+            Node node = root;
+            String[] segments = segments(policy.pattern());
+            Map<String, RateLimitPolicy> target = null;
+            for (int i = 0; i < segments.length; i++) {
+                String segment = segments[i];
+                if (segment.equals("**")) {
+                    if (i != segments.length - 1) {
+                        throw new IllegalArgumentException("Policy " + policy.name() + ": ** is only allowed at the end");
+                    }
+                    target = node.rest;
+                    break;
+                }
+                node = isVariable(segment)
+                        ? (node.variable != null ? node.variable : (node.variable = new Node()))
+                        : node.literals.computeIfAbsent(segment, s -> new Node());
+            }
+            if (target == null) {
+                target = node.exact;
+            }
+            RateLimitPolicy previous = target.putIfAbsent(policy.method(), policy);
+            if (previous != null) {
+                throw new IllegalArgumentException("Policies " + previous.name() + " and " + policy.name()
+                        + " both match " + policy.method() + " " + policy.pattern());
+            }
+        }
+        return new PolicyTrie(root);
+    }
+
+    /**
+     * Most specific policy for the request, or null if none applies.
+     */
+    public RateLimitPolicy match(String method, String path) {
+        Node node = root;
+        RateLimitPolicy fallback = forMethod(node.rest, method);
+        int start = 0;
+        int length = path.length();
+        while (node != null && start < length) {
+            if (path.charAt(start) == '/') {
+                start++;
+                continue;
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            Node next = node.literals.get(path.substring(start, end));
+            node = next != null ? next : node.variable;
+            if (node != null) {
+                RateLimitPolicy rest = forMethod(node.rest, method);
+                if (rest != null) {
+                    fallback = rest;
+                }
+            }
+            start = end;
+        }
+        if (node != null) {
+            RateLimitPolicy exact = forMethod(node.exact, method);
+            if (exact != null) {
+                return exact;
+            }
+        }
+        return fallback;
+    }
+
+    private static RateLimitPolicy forMethod(Map<String, RateLimitPolicy> policies, String method) {
+        if (policies.isEmpty()) {
+            return null;
+        }
+        RateLimitPolicy policy = policies.get(method);
+        return policy != null ? policy : policies.get(ANY_METHOD);
+    }
+
+    private static String[] segments(String pattern) {
+        return Arrays.stream(pattern.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.equals("*") || (segment.startsWith("{") && segment.endsWith("}"));
+    }
+
+    private static final class Node {
+        final Map<String, Node> literals = new HashMap<>();
+        Node variable;
+        final Map<String, RateLimitPolicy> exact = new HashMap<>(); // by method
+        final Map<String, RateLimitPolicy> rest = new HashMap<>();  // "**" policies, by method
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.ecommerce.util.ratelimit;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * One rate-limit rule: requests matching {@code pattern} (and {@code method}, if set)
+ * may be made {@code limit} times per {@code period} per key.
+ *
+ * @param pattern path pattern; segments are literals, {var} or * for any one segment, and a trailing ** for any rest
+ * @param method  HTTP method, or null/"*" for any
+ */
+public record RateLimitPolicy(String name,
+                              String pattern,
+                              String method,
+                              KeyType key,
+                              int limit,
+                              Duration period) {
+
+    public enum KeyType {
+        IP,
+        USER,
+        API_KEY
+    }
+
+    public RateLimitPolicy {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Rate limit policy needs a name");
+        }
+        if (pattern == null || !pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Policy " + name + ": pattern must start with /");
+        }
+        if (limit < 1 || limit > TokenBucket.MAX_CAPACITY) {
+            throw new IllegalArgumentException("Policy " + name + ": limit must be between 1 and " + TokenBucket.MAX_CAPACITY);
+        }
+        method = method == null || method.isBlank() ? "*" : method.toUpperCase(Locale.ROOT);
+        key = key == null ? KeyType.IP : key;
+        period = period == null ? Duration.ofMinutes(1) : period;
+        if (period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Policy " + name + ": period must be positive");
+        }
+    }
+}
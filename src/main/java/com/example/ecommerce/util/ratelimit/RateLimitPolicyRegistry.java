@@ -0,0 +1,109 @@
+package com.example.ecommerce.util.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Holds the compiled rate-limit policies. They come from app.rate-limit.policies
+ * in the application config, or, when app.rate-limit.policies-file is set, from
+ * the "policies" list in that YAML file. The file is checked for changes
+ * periodically and can also be reloaded on demand. A file that fails to parse
+ * or validate is logged, and the previous policies stay in force.
+ */
+@Component
+public class RateLimitPolicyRegistry {
+
+    private static final Bindable<List<RateLimitPolicy>> POLICY_LIST = Bindable.listOf(RateLimitPolicy.class);
+
+    private final Environment environment;
+    private final Path policiesFile;
+    private volatile Snapshot current;
+    private volatile long fileModified = -1;
+
+    public RateLimitPolicyRegistry(Environment environment,
+                                   @Value("${app.rate-limit.policies-file:}") String policiesFile) {
+        this.environment = environment;
+        this.policiesFile = policiesFile.isBlank() ? null : Paths.get(policiesFile).toAbsolutePath();
+        this.current = compile(loadDefaults());
+        reload();
+    }
+
+    public RateLimitPolicy match(String method, String path) {
+        return current.trie().match(method, path);
+    }
+
+    public List<RateLimitPolicy> policies() {
+        return current.policies();
+    }
+
+    /**
+     * Bumped on every successful reload so callers can drop state built for older policies.
+     */
+    public long generation() {
+        return current.generation();
+    }
+
+    /**
+     * Re-reads the policy file, or the application config if no file is configured.
+     *
+     * @return the policies now in force
+     */
+    public synchronized List<RateLimitPolicy> reload() {
+        try {
+            List<RateLimitPolicy> policies;
+            if (policiesFile != null && Files.isRegularFile(policiesFile)) {
+                fileModified = Files.getLastModifiedTime(policiesFile).toMillis();
+                policies = loadFile();
+            } else {
+                policies = loadDefaults();
+            }
+            Snapshot next = compile(policies);
+            current = new Snapshot(next.policies(), next.trie(), current.generation() + 1);
+            System.out.println("Loaded " + policies.size() + " rate limit policies");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Keeping previous rate limit policies, reload failed: " + e.getMessage());
+        }
+        return current.policies();
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.reload-interval-ms:30000}")
+    public void reloadIfChanged() throws IOException {
+        if (policiesFile == null || !Files.isRegularFile(policiesFile)) {
+            return;
+        }
+        if (Files.getLastModifiedTime(policiesFile).toMillis() != fileModified) {
+            reload();
+        }
+    }
+
+    private List<RateLimitPolicy> loadDefaults() {
+        return Binder.get(environment).bind("app.rate-limit.policies", POLICY_LIST).orElse(List.of());
+    }
+
+    private List<RateLimitPolicy> loadFile() throws IOException {
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                .load("rate-limit-policies", new FileSystemResource(policiesFile));
+        return new Binder(ConfigurationPropertySources.from(sources)).bind("policies", POLICY_LIST).orElse(List.of());
+    }
+
+    private static Snapshot compile(List<RateLimitPolicy> policies) {
+        return new Snapshot(List.copyOf(policies), PolicyTrie.compile(policies), 0);
+    }
+
+    private record Snapshot(List<RateLimitPolicy> policies, PolicyTrie trie, long generation) {
+    }
+}
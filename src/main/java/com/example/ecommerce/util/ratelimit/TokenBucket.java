@@ -0,0 +1,79 @@
+package com.example.ecommerce.util.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. The whole state fits in one long that is updated
+ * with compare-and-set: the upper 40 bits hold the last refill time in
+ * milliseconds since {@link #EPOCH_BASE}, and the lower 24 bits hold the
+ * tokens in thousandths. Tokens refill continuously, so there is no
+ * window-edge burst beyond the bucket capacity.
+ */
+public class TokenBucket {
+
+    private static final long EPOCH_BASE = 1_700_000_000_000L; // 2023-11-14; 40 bits of millis last ~34 years from here
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long SCALE = 1_000; // tokens are stored in thousandths
+    public static final int MAX_CAPACITY = (int) (TOKEN_MASK / SCALE);
+
+    private final long capacityScaled;
+    private final long periodMillis;
+    private final AtomicLong state;
+
+    /**
+     * A bucket holding up to {@code capacity} tokens that refills {@code capacity} tokens every {@code periodMillis}.
+     */
+    public TokenBucket(int capacity, long periodMillis, long nowMillis) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        if (periodMillis < 1) {
+            throw new IllegalArgumentException("periodMillis must be positive");
+        }
+        this.capacityScaled = capacity * SCALE;
+        this.periodMillis = periodMillis;
+        this.state = new AtomicLong(pack(nowMillis, capacityScaled));
+    }
+
+    public long periodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * Takes one token if available.
+     *
+     * @return 0 if a token was taken, otherwise the milliseconds until one will be available
+     */
+    public long tryConsume(long nowMillis) {
+        long now = nowMillis - EPOCH_BASE;
+        while (true) {
+            long current = state.get();
+            long last = current >>> TOKEN_BITS;
+            long tokens = current & TOKEN_MASK;
+
+            long elapsed = Math.min(Math.max(0, now - last), periodMillis);
+            long added = elapsed * capacityScaled / periodMillis;
+            long refilled = tokens + added;
+            long refillTime;
+            if (refilled >= capacityScaled) {
+                refilled = capacityScaled;
+                refillTime = now;
+            } else {
+                // advance only by the time that turned into whole thousandths, keeping the remainder
+                refillTime = last + added * periodMillis / capacityScaled;
+            }
+
+            if (refilled < SCALE) {
+                return Math.max(1, (SCALE - refilled) * periodMillis / capacityScaled);
+            }
+            if (state.compareAndSet(current, ((refillTime & ((1L << (64 - TOKEN_BITS)) - 1)) << TOKEN_BITS) | (refilled - SCALE))) {
+                return 0;
+            }
+        }
+    }
+
+    private static long pack(long nowMillis, long tokens) {
+        return ((nowMillis - EPOCH_BASE) << TOKEN_BITS) | tokens;
+    }
+}
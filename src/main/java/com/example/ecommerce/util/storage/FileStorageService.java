@@ -3,8 +3,43 @@ package com.example.ecommerce.util.storage;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 
 public interface FileStorageService {
+    /**
+     * Stores the upload and returns its public URL (under /api/media/).
+     */
     String store(MultipartFile file) throws IOException;
-}
 
+    /**
+     * Stores a file already assembled on local disk (e.g. a completed chunked upload), moving it
+     * rather than copying when possible, and returns its public URL. The source is gone afterwards.
+     */
+    String storeFile(Path source, String originalFilename) throws IOException;
+
+    /**
+     * Directory for partially received uploads, on the same filesystem as the stored objects.
+     */
+    Path stagingDirectory() throws IOException;
+
+    /**
+     * Takes another reference on an already stored object, e.g. when an import points a product at
+     * an existing media URL. Returns false, and takes nothing, if the location is not a stored object.
+     */
+    boolean retain(String location);
+
+    /**
+     * Drops one reference taken by {@link #store} or {@link #retain}; the object is deleted once nothing references it.
+     */
+    void release(String location) throws IOException;
+
+    /**
+     * Maps a key relative to the media root to a stored file, or null if it does not exist.
+     */
+    Path resolve(String key);
+
+    /**
+     * Whether the key names a content-addressed object, whose bytes never change.
+     */
+    boolean isImmutable(String key);
+}
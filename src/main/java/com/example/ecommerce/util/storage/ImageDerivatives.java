@@ -0,0 +1,179 @@
+package com.example.ecommerce.util.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates resized variants of stored images on a small bounded worker pool,
+ * so uploads return as soon as the original is stored. Derivative keys are
+ * derived from the original's key, so URLs can be computed without a lookup.
+ * The media endpoint serves the original until the variant exists.
+ */
+@Component
+public class ImageDerivatives {
+
+    public static final String THUMB = "thumb";
+    public static final String MEDIUM = "medium";
+
+    private static final String OBJECTS = "objects/";
+    private static final String DERIVATIVES = "derivatives/";
+    private static final int THUMB_SIZE = 200;
+    private static final int MEDIUM_SIZE = 800;
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final ThreadPoolExecutor executor;
+
+    public ImageDerivatives() {
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(200), r -> {
+            Thread t = new Thread(r, "image-derivatives-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Derivative key for an original object key, or null if the key is not content-addressed.
+     */
+    public static String keyFor(String originalKey, String variant) {
+        if (originalKey == null || !originalKey.startsWith(OBJECTS)) {
+            return null;
+        }
+        return DERIVATIVES + originalKey.substring(OBJECTS.length()) + "-" + variant + "." + formatFor(originalKey);
+    }
+
+    /**
+     * Public URL of a variant for a stored image URL, or null if it has none.
+     */
+    public static String urlFor(String imageUrl, String variant) {
+        if (imageUrl == null || !imageUrl.startsWith(LocalFileStorageService.URL_PREFIX)) {
+            return null;
+        }
+        String key = keyFor(imageUrl.substring(LocalFileStorageService.URL_PREFIX.length()), variant);
+        return key != null ? LocalFileStorageService.URL_PREFIX + key : null;
+    }
+
+    /**
+     * Original object key for a derivative key, or null if the key is not a derivative.
+     */
+    public static String originalKeyOf(String derivativeKey) {
+        if (!derivativeKey.startsWith(DERIVATIVES)) {
+            return null;
+        }
+        int dash = derivativeKey.lastIndexOf('-');
+        return dash < 0 ? null : OBJECTS + derivativeKey.substring(DERIVATIVES.length(), dash);
+    }
+
+    public void submit(Path root, String originalKey) {
+        try {
+            executor.execute(() -> generate(root, originalKey));
+        } catch (RejectedExecutionException e) {
+            System.err.println("Image derivative queue full, skipping " + originalKey);
+        }
+    }
+
+    public void delete(Path root, String originalKey) throws IOException {
+        for (String variant : new String[]{THUMB, MEDIUM}) {
+            String key = keyFor(originalKey, variant);
+            if (key != null) {
+                Files.deleteIfExists(root.resolve(key));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void generate(Path root, String originalKey) {
+        try {
+            BufferedImage source = ImageIO.read(root.resolve(originalKey).toFile());
+            if (source == null) {
+                return; // not a format ImageIO can decode (e.g. avif)
+            }
+            write(root, originalKey, THUMB, resize(source, THUMB_SIZE));
+            write(root, originalKey, MEDIUM, resize(source, MEDIUM_SIZE));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to generate derivatives for " + originalKey + ": " + e.getMessage());
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int maxSize) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int w = Math.max(1, (int) Math.round(width * scale));
+        int h = Math.max(1, (int) Math.round(height * scale));
+        boolean alpha = source.getColorModel().hasAlpha();
+        BufferedImage target = new BufferedImage(w, h, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private static void write(Path root, String originalKey, String variant, BufferedImage image) throws IOException {
+        Path target = root.resolve(keyFor(originalKey, variant));
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), variant + "-", ".part");
+        try {
+            String format = formatFor(originalKey);
+            ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(out);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if ("jpg".equals(format)) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(JPEG_QUALITY);
+                }
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * PNG and GIF sources may carry transparency, so their variants stay PNG; everything else becomes JPEG.
+     */
+    private static String formatFor(String originalKey) {
+        String lower = originalKey.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".png") || lower.endsWith(".gif") ? "png" : "jpg";
+    }
+}
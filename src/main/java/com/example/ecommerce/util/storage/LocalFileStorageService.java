@@ -1,34 +1,239 @@
 package com.example.ecommerce.util.storage;
 
+import com.example.ecommerce.model.StoredObject;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Locale;
 import java.util.UUID;
 
+/**
+ * Stores uploads on local disk. In content-addressed mode (the default) each
+ * upload is hashed while it is written to a temp file, then moved to
+ * objects/ab/cd/&lt;sha256&gt;.&lt;ext&gt;. An identical upload reuses the existing
+ * object. Reference counts in the stored_objects collection decide when an
+ * object can be deleted.
+ */
 @Service
 public class LocalFileStorageService implements FileStorageService {
 
+    public static final String URL_PREFIX = "/api/media/";
+    private static final int LOCK_STRIPES = 64;
+
     private final Path storagePath;
+    private final Path objectsPath;
+    private final Path tmpPath;
+    private final boolean contentAddressed;
+    private final MongoTemplate mongoTemplate;
+    private final ImageDerivatives imageDerivatives;
+    private final Object[] locks = new Object[LOCK_STRIPES];
 
-    public LocalFileStorageService(@Value("${app.storage.local-path:uploads}") String storagePath) throws IOException {
+    public LocalFileStorageService(@Value("${app.storage.local-path:uploads}") String storagePath,
+                                   @Value("${app.storage.content-addressed:true}") boolean contentAddressed,
+                                   MongoTemplate mongoTemplate,
+                                   ImageDerivatives imageDerivatives) throws IOException {
         this.storagePath = Paths.get(storagePath).toAbsolutePath().normalize();
+        this.objectsPath = this.storagePath.resolve("objects");
+        this.tmpPath = this.storagePath.resolve("tmp");
+        this.contentAddressed = contentAddressed;
+        this.mongoTemplate = mongoTemplate;
+        this.imageDerivatives = imageDerivatives;
         Files.createDirectories(this.storagePath);
+        if (contentAddressed) {
+            Files.createDirectories(objectsPath);
+            Files.createDirectories(tmpPath);
+        }
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
     }
 
     @Override
     public String store(MultipartFile file) throws IOException {
         String original = StringUtils.cleanPath(file.getOriginalFilename());
-        String filename = UUID.randomUUID() + "-" + original;
-        Path target = storagePath.resolve(filename);
-        Files.copy(file.getInputStream(), target, StandardCopyOption.REPLACE_EXISTING);
-        return target.toString();
+        if (!contentAddressed) {
+            String filename = UUID.randomUUID() + "-" + original;
+            Path target = storagePath.resolve(filename);
+            Files.copy(file.getInputStream(), target, StandardCopyOption.REPLACE_EXISTING);
+            return URL_PREFIX + filename;
+        }
+
+        Path temp = Files.createTempFile(tmpPath, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return commit(temp, HexFormat.of().formatHex(digest.digest()), size, original);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
     }
-}
 
+    @Override
+    public String storeFile(Path source, String originalFilename) throws IOException {
+        String original = StringUtils.cleanPath(originalFilename);
+        if (!contentAddressed) {
+            String filename = UUID.randomUUID() + "-" + original;
+            move(source, storagePath.resolve(filename));
+            return URL_PREFIX + filename;
+        }
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(source), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        try {
+            return commit(source, HexFormat.of().formatHex(digest.digest()), Files.size(source), original);
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    /**
+     * Takes a reference on the object with this hash, moving the file into place if it is new.
+     */
+    private String commit(Path file, String hash, long size, String original) throws IOException {
+        String relative = "objects/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + extension(original);
+        synchronized (lockFor(hash)) {
+            StoredObject object = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(hash)),
+                    new Update().inc("refCount", 1)
+                            .setOnInsert("path", relative)
+                            .setOnInsert("size", size)
+                            .setOnInsert("createdAt", Instant.now()),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    StoredObject.class);
+            Path target = storagePath.resolve(object.getPath()).normalize();
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                move(file, target);
+                imageDerivatives.submit(storagePath, object.getPath());
+            }
+            return URL_PREFIX + object.getPath();
+        }
+    }
+
+    @Override
+    public boolean retain(String location) {
+        String hash = objectHash(location);
+        if (hash == null) {
+            return false;
+        }
+        synchronized (lockFor(hash)) {
+            // refCount 0 means a release is deleting the object; it cannot be revived
+            StoredObject object = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(hash).and("refCount").gt(0)),
+                    new Update().inc("refCount", 1),
+                    StoredObject.class);
+            return object != null;
+        }
+    }
+
+    @Override
+    public void release(String location) throws IOException {
+        String hash = objectHash(location);
+        if (hash == null) {
+            return;
+        }
+        synchronized (lockFor(hash)) {
+            StoredObject object = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(hash)),
+                    new Update().inc("refCount", -1),
+                    FindAndModifyOptions.options().returnNew(true),
+                    StoredObject.class);
+            if (object == null || object.getRefCount() > 0) {
+                return;
+            }
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(hash).and("refCount").lte(0)), StoredObject.class);
+            Files.deleteIfExists(storagePath.resolve(object.getPath()).normalize());
+            imageDerivatives.delete(storagePath, object.getPath());
+        }
+    }
+
+    /**
+     * Hash of the content-addressed object a location points at, or null for legacy and external locations.
+     */
+    private String objectHash(String location) {
+        if (!contentAddressed || location == null) {
+            return null;
+        }
+        Path path = location.startsWith(URL_PREFIX)
+                ? storagePath.resolve(location.substring(URL_PREFIX.length())).normalize()
+                : Paths.get(location).toAbsolutePath().normalize(); // absolute paths returned by older versions
+        if (!path.startsWith(objectsPath)) {
+            return null; // legacy upload stored before content addressing
+        }
+        String filename = path.getFileName().toString();
+        int dot = filename.indexOf('.');
+        return dot >= 0 ? filename.substring(0, dot) : filename;
+    }
+
+    @Override
+    public Path stagingDirectory() throws IOException {
+        return Files.createDirectories(tmpPath.resolve("chunks"));
+    }
+
+    @Override
+    public Path resolve(String key) {
+        Path path = storagePath.resolve(key).normalize();
+        if (!path.startsWith(storagePath) || path.startsWith(tmpPath) || !Files.isRegularFile(path)) {
+            return null;
+        }
+        return path;
+    }
+
+    @Override
+    public boolean isImmutable(String key) {
+        return contentAddressed && (key.startsWith("objects/") || key.startsWith("derivatives/"));
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Object lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static String extension(String filename) {
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0 || dot == filename.length() - 1) {
+            return "";
+        }
+        String ext = filename.substring(dot).toLowerCase(Locale.ROOT);
+        return ext.matches("\\.[a-z0-9]{1,8}") ? ext : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}